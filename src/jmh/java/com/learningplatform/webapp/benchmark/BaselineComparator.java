@@ -0,0 +1,202 @@
+package com.learningplatform.webapp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Compares a JMH JSON result file with a stored baseline and fails when any benchmark got slower than the
+ * allowed threshold. Run by the {@code jmh} profile after the benchmarks:
+ * {@code BaselineComparator <result.json> <baseline.json> <threshold> <update>}.
+ * <p>
+ * For time-per-operation modes a higher score is worse, for throughput a lower one. A benchmark only counts as
+ * slower when its score moved by more than the threshold and its confidence interval no longer overlaps the one of
+ * the baseline, so run-to-run noise of a short run does not fail the build. Benchmarks missing from the baseline
+ * are reported but never fail the build.
+ * <p>
+ * The machine a baseline was recorded on is kept next to it in {@value #MACHINE_FILE}. On any other machine, or
+ * another JVM, the comparison is advisory: regressions are reported but do not fail the build. With
+ * {@code update=true} the result and the current machine replace the baseline instead.
+ */
+public final class BaselineComparator {
+    static final String MACHINE_FILE = "baseline-machine.properties";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: BaselineComparator <result.json> <baseline.json> <threshold> [update]");
+            System.exit(2);
+        }
+
+        Path result = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double threshold = Double.parseDouble(args[2]);
+        boolean update = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        Path machineFile = baseline.resolveSibling(MACHINE_FILE);
+        Map<String, String> machine = machine();
+
+        if (update || !Files.exists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            writeMachine(machineFile, machine);
+            System.out.println("Baseline written to " + baseline);
+            return;
+        }
+
+        Map<String, String> baselineMachine = readMachine(machineFile);
+        boolean sameMachine = machine.equals(baselineMachine);
+        if (!sameMachine) {
+            System.out.println("Baseline was recorded on "
+                    + (baselineMachine.isEmpty() ? "an unknown machine" : baselineMachine.toString())
+                    + ", this is " + machine + "; regressions are reported but do not fail the build");
+        }
+
+        int regressions = compare(read(baseline), read(result), threshold);
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed by more than " + percent(threshold));
+            if (sameMachine) {
+                System.exit(1);
+            }
+        }
+    }
+
+    static int compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        int regressions = 0;
+
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+
+            if (before == null || !before.unit.equals(now.unit)) {
+                System.out.printf("NEW   %-70s %12.3f %s%n", entry.getKey(), now.value, now.unit);
+                continue;
+            }
+
+            double change = now.higherIsBetter
+                    ? before.value / now.value - 1
+                    : now.value / before.value - 1;
+            boolean separated = now.higherIsBetter
+                    ? now.high < before.low
+                    : now.low > before.high;
+            boolean regressed = change > threshold && separated;
+            if (regressed) regressions++;
+
+            String verdict = regressed ? "SLOW" : change > threshold ? "NOISY" : "OK";
+            System.out.printf("%-5s %-70s %12.3f -> %12.3f +- %.3f %s (%+.1f%%)%n", verdict,
+                    entry.getKey(), before.value, now.value, now.error, now.unit, change * 100);
+        }
+
+        return regressions;
+    }
+
+    static Map<String, Score> read(Path path) throws IOException {
+        Map<String, Score> returnValue = new LinkedHashMap<>();
+
+        for (JsonNode run : OBJECT_MAPPER.readTree(path.toFile())) {
+            JsonNode metric = run.path("primaryMetric");
+            String mode = run.path("mode").asText();
+            returnValue.put(key(run), new Score(metric.path("score").asDouble(), metric.path("scoreError").asDouble(),
+                    metric.path("scoreUnit").asText(), "thrpt".equals(mode)));
+        }
+
+        return returnValue;
+    }
+
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            params.put(field.getKey(), field.getValue().asText());
+        }
+        params.forEach((name, value) -> key.append(':').append(name).append('=').append(value));
+
+        return key.append(' ').append(run.path("mode").asText()).toString();
+    }
+
+    /**
+     * What scores depend on besides the code: the CPU, the core count, the operating system and the JVM.
+     */
+    static Map<String, String> machine() throws IOException {
+        Map<String, String> returnValue = new TreeMap<>();
+        returnValue.put("cpu", cpuModel());
+        returnValue.put("cpus", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        returnValue.put("os", System.getProperty("os.name") + ' ' + System.getProperty("os.arch"));
+        returnValue.put("jvm", System.getProperty("java.vm.name") + ' ' + System.getProperty("java.vm.version"));
+        return returnValue;
+    }
+
+    private static String cpuModel() throws IOException {
+        Path cpuInfo = Paths.get("/proc/cpuinfo");
+        if (!Files.isReadable(cpuInfo)) return "unknown";
+
+        try (Stream<String> lines = Files.lines(cpuInfo)) {
+            return lines.filter(line -> line.startsWith("model name"))
+                    .map(line -> line.substring(line.indexOf(':') + 1).trim())
+                    .findFirst()
+                    .orElse("unknown");
+        }
+    }
+
+    private static Map<String, String> readMachine(Path path) throws IOException {
+        Map<String, String> returnValue = new TreeMap<>();
+        if (!Files.exists(path)) return returnValue;
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        properties.stringPropertyNames().forEach(name -> returnValue.put(name, properties.getProperty(name)));
+        return returnValue;
+    }
+
+    private static void writeMachine(Path path, Map<String, String> machine) throws IOException {
+        StringBuilder content = new StringBuilder("# Machine the JMH baseline next to this file was recorded on\n");
+        machine.forEach((name, value) -> content.append(name).append('=').append(value).append('\n'));
+        Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String percent(double fraction) {
+        return String.format("%.0f%%", fraction * 100);
+    }
+
+    static final class Score {
+        final double value;
+        final double error;
+        final double low;
+        final double high;
+        final String unit;
+        final boolean higherIsBetter;
+
+        /**
+         * {@code error} is the half-width of the 99.9% confidence interval JMH reports, NaN for a single iteration.
+         */
+        Score(double value, double error, String unit, boolean higherIsBetter) {
+            this.value = value;
+            this.error = Double.isNaN(error) ? 0 : error;
+            this.low = value - this.error;
+            this.high = value + this.error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
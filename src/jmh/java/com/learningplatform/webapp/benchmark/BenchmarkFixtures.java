@@ -0,0 +1,110 @@
+package com.learningplatform.webapp.benchmark;
+
+import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.RevokedTokenRepository;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Shared fixtures for the benchmarks: application properties without a Spring context and an in-memory
+ * {@link UserRepository} stub, so measurements cover the security code rather than mocks or a database.
+ */
+public final class BenchmarkFixtures {
+    public static final String EMAIL = "johnny@mail.com";
+    public static final String USER_ID = "asf23";
+    public static final String TOKEN_SECRET = "jf9i4jgu83nfl0dfg";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Properties as in application.properties; {@code cacheSize} 0 disables the security caches.
+     */
+    public static AppProperties appProperties(long cacheSize) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("tokenSecret", TOKEN_SECRET)
+                .withProperty("principalCache.maxSize", String.valueOf(cacheSize))
+                .withProperty("tokenCache.maxSize", String.valueOf(cacheSize))
+                .withProperty("tokenVersionCache.maxSize", String.valueOf(cacheSize));
+
+        AppProperties appProperties = new AppProperties();
+        ReflectionTestUtils.setField(appProperties, "environment", environment);
+        return appProperties;
+    }
+
+    public static UserEntity userEntity() {
+        AuthorityEntity read = new AuthorityEntity("READ_AUTHORITY");
+        AuthorityEntity write = new AuthorityEntity("WRITE_AUTHORITY");
+
+        RoleEntity role = new RoleEntity("ROLE_USER");
+        role.setId(1L);
+        role.setAuthorities(new HashSet<>(Arrays.asList(read, write)));
+
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(1L);
+        userEntity.setUserId(USER_ID);
+        userEntity.setFirstName("John");
+        userEntity.setLastName("Connor");
+        userEntity.setEmail(EMAIL);
+        userEntity.setEncryptedPassword("$2a$10$Rq1iN1uJ3J0Xr1m0Zp9hEOW3m6kfl3w1aHcU4pxe1pZ6zjt4mFQ1C");
+        userEntity.setEmailVerificationStatus(true);
+        userEntity.setRoles(new ArrayList<>(Collections.singletonList(role)));
+        return userEntity;
+    }
+
+    /**
+     * Repository stub answering the lookups done on the authorization path with a fixed user.
+     */
+    public static UserRepository userRepository(UserEntity userEntity) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByEmail":
+                            return userEntity.getEmail().equals(args[0]) ? userEntity : null;
+                        case "findTokenVersionByUserId":
+                            return userEntity.getUserId().equals(args[0]) ? userEntity.getTokenVersion() : null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "UserRepository stub";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Denylist stub with nothing revoked, for the database lookups behind {@code TokenRevocationList}.
+     */
+    public static RevokedTokenRepository revokedTokenRepository() {
+        return (RevokedTokenRepository) Proxy.newProxyInstance(RevokedTokenRepository.class.getClassLoader(),
+                new Class<?>[]{RevokedTokenRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "existsByJti":
+                            return false;
+                        case "findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan":
+                            return Collections.emptyList();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "RevokedTokenRepository stub";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,106 @@
+package com.learningplatform.webapp.benchmark;
+
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.mapper.UserMapper;
+import com.learningplatform.webapp.security.model.request.UserDetailsRequestModel;
+import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of the user mappings, reflective ModelMapper against the generated {@link UserMapper}.
+ * Run with {@code -prof gc} to compare allocation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final UserMapper userMapper = UserMapper.INSTANCE;
+
+    private UserEntity userEntity;
+    private UserDto userDto;
+    private UserDetailsRequestModel request;
+
+    @Setup
+    public void setUp() {
+        RoleEntity role = new RoleEntity("ROLE_USER");
+        role.setId(1L);
+
+        userEntity = new UserEntity();
+        userEntity.setId(1L);
+        userEntity.setUserId("asf23");
+        userEntity.setFirstName("John");
+        userEntity.setLastName("Connor");
+        userEntity.setEmail("johnny@mail.com");
+        userEntity.setEncryptedPassword("asdf234fdh13we");
+        userEntity.setEmailVerificationToken("sfdg43rfsg");
+        userEntity.setRoles(new ArrayList<>(Collections.singletonList(role)));
+
+        userDto = userMapper.toUserDto(userEntity);
+
+        request = new UserDetailsRequestModel();
+        request.setFirstName("John");
+        request.setLastName("Connor");
+        request.setEmail("johnny@mail.com");
+        request.setPassword("123");
+    }
+
+    @Benchmark
+    public UserDto entityToDtoModelMapper() {
+        return modelMapper.map(userEntity, UserDto.class);
+    }
+
+    @Benchmark
+    public UserDto entityToDtoGenerated() {
+        return userMapper.toUserDto(userEntity);
+    }
+
+    @Benchmark
+    public UserEntity dtoToEntityModelMapper() {
+        return modelMapper.map(userDto, UserEntity.class);
+    }
+
+    @Benchmark
+    public UserEntity dtoToEntityGenerated() {
+        return userMapper.toUserEntity(userDto);
+    }
+
+    @Benchmark
+    public UserDto requestToDtoModelMapper() {
+        return modelMapper.map(request, UserDto.class);
+    }
+
+    @Benchmark
+    public UserDto requestToDtoGenerated() {
+        return userMapper.toUserDto(request);
+    }
+
+    @Benchmark
+    public UserDetailsResponseModel dtoToResponseModelMapper() {
+        return modelMapper.map(userDto, UserDetailsResponseModel.class);
+    }
+
+    @Benchmark
+    public UserDetailsResponseModel dtoToResponseGenerated() {
+        return userMapper.toResponseModel(userDto);
+    }
+}
@@ -0,0 +1,65 @@
+package com.learningplatform.webapp.benchmark;
+
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.shared.Utils;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation and expiry checks in {@link Utils}; {@code cacheSize} 0 makes {@code hasTokenExpired}
+ * verify the signature on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    private Utils utils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        AppProperties appProperties = BenchmarkFixtures.appProperties(cacheSize);
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        utils = new Utils(new VerifiedTokenCache(jwtCodec, appProperties), jwtCodec);
+        token = utils.generateEmailVerificationToken(BenchmarkFixtures.USER_ID);
+    }
+
+    @Benchmark
+    public String generateEmailVerificationToken() {
+        return utils.generateEmailVerificationToken(BenchmarkFixtures.USER_ID);
+    }
+
+    @Benchmark
+    public String generatePasswordResetToken() {
+        return utils.generatePasswordResetToken(BenchmarkFixtures.USER_ID);
+    }
+
+    @Benchmark
+    public boolean hasTokenExpired() {
+        return utils.hasTokenExpired(token);
+    }
+
+    @Benchmark
+    public String generateUserId() {
+        return utils.generateUserId(30);
+    }
+}
@@ -0,0 +1,115 @@
+package com.learningplatform.webapp.security;
+
+import com.learningplatform.webapp.benchmark.BenchmarkFixtures;
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
+import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request in {@link AuthorizationFilter} against a stubbed repository.
+ * <ul>
+ *     <li>{@code cold}: caches sized 0, so the signature is verified and the principal built on every call</li>
+ *     <li>{@code warm}: token and principal served from the caches</li>
+ *     <li>{@code selfContained}: principal built from the token claims, token version from the cache</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationFilterBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"cold", "warm", "selfContained"})
+    public String mode;
+
+    private AuthorizationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        AppProperties appProperties = BenchmarkFixtures.appProperties("cold".equals(mode) ? 0 : 10_000);
+        UserEntity userEntity = BenchmarkFixtures.userEntity();
+        UserRepository userRepository = BenchmarkFixtures.userRepository(userEntity);
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        // Another token of the same expiry is revoked, so the check goes through the Bloom filter
+        TokenRevocationList tokenRevocationList =
+                new TokenRevocationList(BenchmarkFixtures.revokedTokenRepository(), appProperties);
+        tokenRevocationList.addRevocation(UUID.randomUUID().toString(),
+                Instant.now().plusMillis(SecurityConstants.TOKEN_EXPIRATION_TIME));
+
+        filter = new AuthorizationFilter(authentication -> authentication, userRepository,
+                new PrincipalCache(appProperties), new VerifiedTokenCache(jwtCodec, appProperties),
+                new TokenVersionCache(userRepository, appProperties), tokenRevocationList,
+                new SimpleMeterRegistry());
+
+        Map<String, Object> claims = "selfContained".equals(mode)
+                ? selfContainedClaims(new UserPrincipal(userEntity))
+                : new HashMap<>();
+        claims.put(SecurityConstants.TOKEN_ID_CLAIM, UUID.randomUUID().toString());
+        String token = jwtCodec.sign(BenchmarkFixtures.EMAIL, SecurityConstants.TOKEN_EXPIRATION_TIME, claims);
+
+        request = new MockHttpServletRequest();
+        request.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws Exception {
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static Map<String, Object> selfContainedClaims(UserPrincipal userPrincipal) {
+        List<String> roles = new ArrayList<>();
+        List<String> authorities = new ArrayList<>();
+        for (GrantedAuthority authority : userPrincipal.getAuthorities()) {
+            String name = authority.getAuthority();
+            (name.startsWith(SecurityConstants.ROLE_PREFIX) ? roles : authorities).add(name);
+        }
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(SecurityConstants.USER_ID_CLAIM, userPrincipal.getUserId());
+        claims.put(SecurityConstants.ROLES_CLAIM, roles);
+        claims.put(SecurityConstants.AUTHORITIES_CLAIM, authorities);
+        claims.put(SecurityConstants.TOKEN_VERSION_CLAIM, userPrincipal.getTokenVersion());
+        return claims;
+    }
+}
@@ -0,0 +1,47 @@
+package com.learningplatform.webapp.security;
+
+import com.learningplatform.webapp.benchmark.BenchmarkFixtures;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserPrincipalBenchmark {
+    private UserEntity userEntity;
+    private UserPrincipal userPrincipal;
+
+    @Setup
+    public void setUp() {
+        userEntity = BenchmarkFixtures.userEntity();
+        userPrincipal = new UserPrincipal(userEntity);
+    }
+
+    @Benchmark
+    public UserPrincipal fromEntity() {
+        return new UserPrincipal(userEntity);
+    }
+
+    @Benchmark
+    public void getAuthorities(Blackhole blackhole) {
+        for (GrantedAuthority authority : userPrincipal.getAuthorities()) {
+            blackhole.consume(authority.getAuthority());
+        }
+    }
+}
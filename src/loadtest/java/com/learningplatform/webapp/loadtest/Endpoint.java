@@ -0,0 +1,21 @@
+package com.learningplatform.webapp.loadtest;
+
+public enum Endpoint {
+    LOGIN("POST /users/login"),
+    GET_USER("GET /users/{id}"),
+    SIGNUP("POST /users"),
+    UPDATE_USER("PUT /users/{id}"),
+    PASSWORD_RESET_REQUEST("POST /users/password-reset-request"),
+    PASSWORD_RESET("POST /users/password-reset"),
+    LOGOUT("POST /users/logout");
+
+    private final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
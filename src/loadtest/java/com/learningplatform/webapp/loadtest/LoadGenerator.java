@@ -0,0 +1,232 @@
+package com.learningplatform.webapp.loadtest;
+
+import com.learningplatform.webapp.WebAppApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-to-end load test. It starts the application in-process with the {@code loadtest} profile, which uses an
+ * in-memory database and {@link RecordingMailSender}, so neither MySQL nor SMTP is needed. Then it registers one
+ * verified account per virtual user and drives the scenario mix over HTTP for the configured time. It prints
+ * per-endpoint latency percentiles, throughput and error rate.
+ * <p>
+ * {@code mvn -Ploadtest -DskipTests verify -Dloadtest.args="concurrency=32 duration=60"}
+ * <ul>
+ *     <li>{@code concurrency} virtual users, each on its own thread (default 16)</li>
+ *     <li>{@code warmup} / {@code duration} seconds, not measured / measured (default 10 / 30)</li>
+ *     <li>{@code mix} scenario weights (default {@value #DEFAULT_MIX}), {@code logout} is available as well</li>
+ *     <li>{@code stack} {@code servlet} or {@code reactive}, the WebFlux and R2DBC variant (default servlet)</li>
+ *     <li>{@code virtualThreads} serve requests on virtual threads, Java 21+, servlet only (default false)</li>
+ *     <li>{@code dbLatencyMs} added to every SQL statement issued through JPA, see {@link SlowDatabaseInspector}
+ *     (default 0)</li>
+ *     <li>{@code dbPool} database connections (default 20)</li>
+ *     <li>{@code replicas} read replica pools for read-only transactions, all on the same in-memory database, so
+ *     they measure the routing without replication lag (default 0)</li>
+ * </ul>
+ * Running the same options once per stack or thread mode compares throughput, peak platform threads and peak
+ * heap.
+ */
+public final class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final String DEFAULT_MIX = "getUser:60,updateUser:15,login:15,signup:5,passwordReset:5";
+    private static final String PASSWORD = "loadtest-password";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        NavigableMap<Integer, VirtualUser.Scenario> mix = mix(options.getOrDefault("mix", DEFAULT_MIX));
+        boolean reactive = "reactive".equals(options.getOrDefault("stack", "servlet"));
+        boolean virtualThreads = Boolean.parseBoolean(options.getOrDefault("virtualThreads", "false"));
+        System.setProperty(SlowDatabaseInspector.LATENCY_PROPERTY, options.getOrDefault("dbLatencyMs", "0"));
+
+        // System properties, so they win over the application and profile property files
+        System.setProperty("threads.virtual", String.valueOf(virtualThreads));
+        System.setProperty("spring.datasource.hikari.maximum-pool-size", options.getOrDefault("dbPool", "20"));
+        int replicas = Integer.parseInt(options.getOrDefault("replicas", "0"));
+        for (int i = 0; i < replicas; i++) {
+            System.setProperty("replicaDataSources[" + i + "].url", "${spring.datasource.url}");
+            System.setProperty("replicaDataSources[" + i + "].username", "${spring.datasource.username}");
+        }
+        // devtools would relaunch this main method in a restart class loader without the arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WebAppApplication.class)
+                // The load-test profile last, so its database settings win over the reactive ones
+                .profiles(reactive
+                        ? new String[]{"reactive", LoadTestConfiguration.PROFILE}
+                        : new String[]{LoadTestConfiguration.PROFILE})
+                .properties("server.port=0")
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI baseUri = URI.create("http://localhost:" + port + "/");
+            RecordingMailSender mailSender = context.getBean(RecordingMailSender.class);
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            AtomicBoolean measuring = new AtomicBoolean();
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<VirtualUser> users = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                users.add(new VirtualUser(httpClient, baseUri, mailSender, mix, measuring, running,
+                        "user-" + i + "@loadtest.local", PASSWORD));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            try {
+                register(users, executor);
+
+                logger.info("Running {} virtual users: {}s warm-up, {}s measured", concurrency, warmupSeconds,
+                        durationSeconds);
+                List<Future<?>> futures = new ArrayList<>(concurrency);
+                users.forEach(user -> futures.add(executor.submit(user)));
+
+                TimeUnit.SECONDS.sleep(warmupSeconds);
+                resetRuntimePeaks();
+                measuring.set(true);
+                long start = System.nanoTime();
+                TimeUnit.SECONDS.sleep(durationSeconds);
+                measuring.set(false);
+                double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+                running.set(false);
+
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                report(users, elapsedSeconds, mailSender.getSentCount());
+                reportRuntime(reactive ? "reactive" : virtualThreads ? "virtual" : "platform");
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void register(List<VirtualUser> users, ExecutorService executor) throws Exception {
+        logger.info("Registering {} accounts", users.size());
+        List<Future<Boolean>> registrations = new ArrayList<>(users.size());
+        users.forEach(user -> registrations.add(executor.submit(user::register)));
+        for (Future<Boolean> registration : registrations) {
+            if (!registration.get()) throw new IllegalStateException("Could not register a load-test account");
+        }
+    }
+
+    private static void report(List<VirtualUser> users, double elapsedSeconds, long mailCount) {
+        Map<Endpoint, EndpointStats> total = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            EndpointStats stats = new EndpointStats();
+            users.forEach(user -> stats.add(user.getStats().get(endpoint)));
+            total.put(endpoint, stats);
+        }
+
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%n%-36s %9s %9s %7s %9s %9s %9s %9s%n", "endpoint", "requests", "req/s", "errors",
+                "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<Endpoint, EndpointStats> entry : total.entrySet()) {
+            EndpointStats stats = entry.getValue();
+            if (stats.getCount() == 0) continue;
+
+            requests += stats.getCount();
+            errors += stats.getErrors();
+            report.append(String.format(Locale.ROOT, "%-36s %9d %9.1f %6.2f%% %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey().getLabel(), stats.getCount(), stats.getCount() / elapsedSeconds,
+                    100.0 * stats.getErrors() / stats.getCount(), stats.getPercentileMillis(50),
+                    stats.getPercentileMillis(99), stats.getPercentileMillis(99.9), stats.getMaxMillis()));
+        }
+        report.append(String.format(Locale.ROOT, "%-36s %9d %9.1f %6.2f%%%n", "total", requests,
+                requests / elapsedSeconds, requests == 0 ? 0.0 : 100.0 * errors / requests));
+        report.append(String.format(Locale.ROOT, "emails sent: %d%n", mailCount));
+
+        System.out.print(report);
+    }
+
+    private static void resetRuntimePeaks() {
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /**
+     * Peaks over the measured window. Virtual threads are not counted as live threads; the client side of
+     * this harness adds the same platform threads in both modes.
+     */
+    private static void reportRuntime(String threads) {
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf(Locale.ROOT, "threads: %s, peak platform threads: %d, peak heap: %.1f MB%n",
+                threads, ManagementFactory.getThreadMXBean().getPeakThreadCount(),
+                peakHeapBytes / (1024.0 * 1024.0));
+    }
+
+    private static NavigableMap<Integer, VirtualUser.Scenario> mix(String spec) {
+        NavigableMap<Integer, VirtualUser.Scenario> returnValue = new TreeMap<>();
+        int cumulativeWeight = 0;
+
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) continue;
+
+            cumulativeWeight += weight;
+            returnValue.put(cumulativeWeight, scenario(parts[0].trim()));
+        }
+
+        if (returnValue.isEmpty()) throw new IllegalArgumentException("Empty scenario mix: " + spec);
+        return returnValue;
+    }
+
+    private static VirtualUser.Scenario scenario(String name) {
+        switch (name) {
+            case "login": return VirtualUser.Scenario.LOGIN;
+            case "getUser": return VirtualUser.Scenario.GET_USER;
+            case "signup": return VirtualUser.Scenario.SIGNUP;
+            case "updateUser": return VirtualUser.Scenario.UPDATE_USER;
+            case "passwordReset": return VirtualUser.Scenario.PASSWORD_RESET;
+            case "logout": return VirtualUser.Scenario.LOGOUT;
+            default: throw new IllegalArgumentException("Unknown scenario: " + name);
+        }
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> returnValue = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) throw new IllegalArgumentException("Expected name=value: " + arg);
+            returnValue.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return returnValue;
+    }
+}
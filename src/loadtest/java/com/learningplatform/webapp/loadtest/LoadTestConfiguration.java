@@ -0,0 +1,19 @@
+package com.learningplatform.webapp.loadtest;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Beans of the {@code loadtest} profile. Only on the classpath when the {@code loadtest} Maven profile is active.
+ */
+@Configuration
+@Profile(LoadTestConfiguration.PROFILE)
+public class LoadTestConfiguration {
+    public static final String PROFILE = "loadtest";
+
+    @Bean
+    public RecordingMailSender mailSender() {
+        return new RecordingMailSender();
+    }
+}
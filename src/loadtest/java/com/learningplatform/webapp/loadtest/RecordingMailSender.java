@@ -0,0 +1,66 @@
+package com.learningplatform.webapp.loadtest;
+
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mail sender that never connects to a server. For recipients registered with {@link #expect(String)} it keeps
+ * the {@code token} of every link it would have mailed, so the load generator can complete email verification
+ * and password reset. Mail to anyone else is only counted.
+ */
+public class RecordingMailSender extends JavaMailSenderImpl {
+    private static final Pattern TOKEN = Pattern.compile("[?&]token=([A-Za-z0-9._\\-]+)");
+
+    private final Map<String, BlockingQueue<String>> tokens = new ConcurrentHashMap<>();
+    private final AtomicLong sentCount = new AtomicLong();
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        for (MimeMessage message : mimeMessages) {
+            try {
+                Matcher matcher = TOKEN.matcher(String.valueOf(message.getContent()));
+                if (matcher.find()) {
+                    for (Address recipient : message.getRecipients(Message.RecipientType.TO)) {
+                        BlockingQueue<String> inbox = tokens.get(recipient.toString());
+                        if (inbox != null) inbox.add(matcher.group(1));
+                    }
+                }
+            } catch (MessagingException | IOException ex) {
+                throw new MailPreparationException(ex);
+            }
+            sentCount.incrementAndGet();
+        }
+    }
+
+    public void expect(String recipient) {
+        tokens.putIfAbsent(recipient, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Waits for the next token mailed to an expected {@code recipient}; returns {@code null} on timeout.
+     */
+    public String awaitToken(String recipient, long timeout, TimeUnit unit) throws InterruptedException {
+        BlockingQueue<String> inbox = tokens.get(recipient);
+        if (inbox == null) throw new IllegalStateException("Not expecting mail for " + recipient);
+        return inbox.poll(timeout, unit);
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+}
@@ -0,0 +1,28 @@
+package com.learningplatform.webapp.loadtest;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for a slow database: delays every SQL statement Hibernate prepares by
+ * {@value #LATENCY_PROPERTY} milliseconds while the connection is checked out, so request threads block
+ * the way they would on a remote database. Registered in {@code application-loadtest.properties}.
+ */
+public class SlowDatabaseInspector implements StatementInspector {
+    public static final String LATENCY_PROPERTY = "loadtest.dbLatencyMs";
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        long latencyMillis = Long.getLong(LATENCY_PROPERTY, 0L);
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,223 @@
+package com.learningplatform.webapp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated client. It owns a verified account and picks scenarios from the weighted mix until stopped.
+ * Requests are recorded only while {@code measuring} is set, so the warm-up does not skew the report.
+ */
+public class VirtualUser implements Runnable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long MAIL_TIMEOUT_SECONDS = 10;
+    private static final int MAX_REGISTER_ATTEMPTS = 30;
+    private static final AtomicLong SIGNUP_SEQUENCE = new AtomicLong();
+
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final RecordingMailSender mailSender;
+    private final NavigableMap<Integer, Scenario> mix;
+    private final int mixTotal;
+    private final AtomicBoolean measuring;
+    private final AtomicBoolean running;
+    private final String email;
+    private final String password;
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+
+    private String authorization;
+    private String userId;
+
+    public VirtualUser(HttpClient httpClient, URI baseUri, RecordingMailSender mailSender,
+                       NavigableMap<Integer, Scenario> mix, AtomicBoolean measuring, AtomicBoolean running,
+                       String email, String password) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.mailSender = mailSender;
+        this.mix = mix;
+        this.mixTotal = mix.lastKey();
+        this.measuring = measuring;
+        this.running = running;
+        this.email = email;
+        this.password = password;
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public enum Scenario {
+        LOGIN, GET_USER, SIGNUP, UPDATE_USER, PASSWORD_RESET, LOGOUT
+    }
+
+    @Override
+    public void run() {
+        while (running.get()) {
+            try {
+                if (authorization == null) {
+                    login();
+                    continue;
+                }
+
+                switch (mix.higherEntry(ThreadLocalRandom.current().nextInt(mixTotal)).getValue()) {
+                    case LOGIN:
+                        login();
+                        break;
+                    case GET_USER:
+                        send(Endpoint.GET_USER, authorized("/users/" + userId).GET());
+                        break;
+                    case SIGNUP:
+                        signup();
+                        break;
+                    case UPDATE_USER:
+                        updateUser();
+                        break;
+                    case PASSWORD_RESET:
+                        resetPassword();
+                        break;
+                    case LOGOUT:
+                        logout();
+                        break;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public Map<Endpoint, EndpointStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Signs the account up and follows the verification link, unmeasured. Used before the run starts; honours
+     * {@code Retry-After} when password hashing is saturated.
+     */
+    public boolean register() throws InterruptedException {
+        mailSender.expect(email);
+        HttpResponse<Void> signup = exchange(post("/users", userDetails(email)));
+        for (int attempt = 1; attempt < MAX_REGISTER_ATTEMPTS && signup != null && signup.statusCode() == 503;
+             attempt++) {
+            TimeUnit.SECONDS.sleep(signup.headers().firstValueAsLong("Retry-After").orElse(1));
+            signup = exchange(post("/users", userDetails(email)));
+        }
+        if (signup == null || signup.statusCode() != 200) return false;
+
+        String token = mailSender.awaitToken(email, MAIL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (token == null) return false;
+
+        HttpResponse<Void> verification = exchange(request("/users/email-verification?token=" + token).GET());
+        return verification != null && verification.statusCode() == 200;
+    }
+
+    private void login() throws InterruptedException {
+        HttpResponse<Void> response = send(Endpoint.LOGIN,
+                post("/users/login", Map.of("email", email, "password", password)));
+        if (response != null && response.statusCode() == 200) {
+            authorization = response.headers().firstValue("Authorization").orElse(null);
+            userId = response.headers().firstValue("UserID").orElse(null);
+        }
+    }
+
+    private void signup() throws InterruptedException {
+        String signupEmail = "signup-" + SIGNUP_SEQUENCE.incrementAndGet() + "@loadtest.local";
+        send(Endpoint.SIGNUP, post("/users", userDetails(signupEmail)));
+    }
+
+    private void updateUser() throws InterruptedException {
+        Map<String, String> body = Map.of("firstName", "Load" + ThreadLocalRandom.current().nextInt(1000),
+                "lastName", "Test");
+        send(Endpoint.UPDATE_USER, authorized("/users/" + userId)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(json(body))));
+    }
+
+    /**
+     * Requests a reset, waits for the mail (unmeasured) and resets to the same password. The reset revokes the
+     * current token, so the next iteration logs in again.
+     */
+    private void resetPassword() throws InterruptedException {
+        HttpResponse<Void> request = send(Endpoint.PASSWORD_RESET_REQUEST,
+                post("/users/password-reset-request", Map.of("email", email)));
+        if (request == null || request.statusCode() != 200) return;
+
+        String token = mailSender.awaitToken(email, MAIL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (token == null) return;
+
+        send(Endpoint.PASSWORD_RESET, post("/users/password-reset", Map.of("token", token, "password", password)));
+        authorization = null;
+    }
+
+    /**
+     * Logs out and replays the token, which only counts as a success when the replay is rejected. The next
+     * iteration logs in again.
+     */
+    private void logout() throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<Void> response = exchange(authorized("/users/logout").POST(HttpRequest.BodyPublishers.noBody()));
+        long elapsed = System.nanoTime() - start;
+
+        HttpResponse<Void> replay = exchange(authorized("/users/" + userId).GET());
+        if (measuring.get()) {
+            stats.get(Endpoint.LOGOUT).record(elapsed, response != null && response.statusCode() == 200
+                    && replay != null && replay.statusCode() == 403);
+        }
+        authorization = null;
+    }
+
+    private HttpResponse<Void> send(Endpoint endpoint, HttpRequest.Builder request) throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<Void> response = exchange(request);
+        long elapsed = System.nanoTime() - start;
+
+        if (measuring.get()) {
+            stats.get(endpoint).record(elapsed, response != null && response.statusCode() < 400);
+        }
+        return response;
+    }
+
+    private HttpResponse<Void> exchange(HttpRequest.Builder request) throws InterruptedException {
+        try {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private Map<String, String> userDetails(String email) {
+        return Map.of("firstName", "Load", "lastName", "Test", "email", email, "password", password);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path));
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return request(path).header("Authorization", authorization);
+    }
+
+    private HttpRequest.Builder post(String path, Map<String, String> body) {
+        return request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json(body)));
+    }
+
+    private static byte[] json(Object body) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(body);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
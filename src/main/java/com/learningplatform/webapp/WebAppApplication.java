@@ -5,20 +5,16 @@ import com.learningplatform.webapp.security.properties.AppProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class WebAppApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(WebAppApplication.class, args);
 	}
 
-	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder() {
-		return new BCryptPasswordEncoder();
-	}
-
 	@Bean
 	public SpringApplicationContext springApplicationContext() {
 		return new SpringApplicationContext();
@@ -2,11 +2,18 @@ package com.learningplatform.webapp.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.exceptions.LoginThrottledException;
+import com.learningplatform.webapp.security.exceptions.PasswordHashingRejectedException;
 import com.learningplatform.webapp.security.logic.service.UserService;
 import com.learningplatform.webapp.security.model.dto.UserDto;
 import com.learningplatform.webapp.security.model.request.UserLoginRequestModel;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.throttle.LoginThrottle;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -18,27 +25,77 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
     private final AuthenticationManager authenticationManager;
+    private final AppProperties appProperties;
+    private final JwtCodec jwtCodec;
+    private final LoginThrottle loginThrottle;
+    private final MeterRegistry meterRegistry;
+    private final Timer authenticationSuccessTimer;
+    private final Timer authenticationFailureTimer;
+    private final Timer tokenSignTimer;
 
-    public AuthenticationFilter(AuthenticationManager authenticationManager){
+    public AuthenticationFilter(AuthenticationManager authenticationManager, AppProperties appProperties,
+                                JwtCodec jwtCodec, LoginThrottle loginThrottle, MeterRegistry meterRegistry){
         this.authenticationManager = authenticationManager;
+        this.appProperties = appProperties;
+        this.jwtCodec = jwtCodec;
+        this.loginThrottle = loginThrottle;
+        this.meterRegistry = meterRegistry;
+        this.authenticationSuccessTimer = authenticationTimer(meterRegistry, "success");
+        this.authenticationFailureTimer = authenticationTimer(meterRegistry, "failure");
+        this.tokenSignTimer = Timer.builder("security.token.sign")
+                .description("Access token signing after a successful login")
+                .register(meterRegistry);
+    }
+
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.authentication")
+                .description("Credential check on login, including the password hash comparison")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
         try{
-            UserLoginRequestModel credentials = new ObjectMapper()
-                    .readValue(request.getInputStream(), UserLoginRequestModel.class);
-
-            return authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            credentials.getEmail(),
-                            credentials.getPassword(),
-                            new ArrayList<>())
-                    );
+            UserLoginRequestModel credentials;
+            try {
+                // Behind a proxy, server.forward-headers-strategy makes the remote address the client's
+                loginThrottle.acquire(LoginThrottle.Scope.IP, request.getRemoteAddr());
+                credentials = new ObjectMapper().readValue(request.getInputStream(), UserLoginRequestModel.class);
+                loginThrottle.check(LoginThrottle.Scope.EMAIL, credentials.getEmail());
+            } catch (LoginThrottledException e) {
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+                return null;
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                Authentication authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                credentials.getEmail(),
+                                credentials.getPassword(),
+                                new ArrayList<>())
+                        );
+                sample.stop(authenticationSuccessTimer);
+                return authentication;
+            } catch (AuthenticationException e) {
+                sample.stop(authenticationFailureTimer);
+                // Only failures count against the email, so nobody can lock the account out by trying to log in
+                loginThrottle.recordFailure(LoginThrottle.Scope.EMAIL, credentials.getEmail());
+                throw e;
+            } catch (PasswordHashingRejectedException e) {
+                // Overloaded: answer now instead of queueing, and end the request without authenticating
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+                return null;
+            }
         } catch (IOException e){
             throw new RuntimeException(e);
         }
@@ -47,17 +104,26 @@ public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
     @Override
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
                                             FilterChain chain, Authentication authResult){
-        String userName = ((UserPrincipal) authResult.getPrincipal()).getUsername();
+        UserPrincipal userPrincipal = (UserPrincipal) authResult.getPrincipal();
+        String userName = userPrincipal.getUsername();
+
+        // The jti identifies the token for POST /users/logout
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(SecurityConstants.TOKEN_ID_CLAIM, UUID.randomUUID().toString());
+        String userId;
+        if (appProperties.isSelfContainedTokens()) {
+            claims.putAll(userPrincipal.toClaims());
+            userId = userPrincipal.getUserId();
+        } else {
+            UserService userService = (UserService) SpringApplicationContext.getBean("userServiceImpl");
+            UserDto userDto = userService.getUser(userName);
+            userId = userDto.getUserId();
+        }
 
-        String token = Jwts.builder()
-                .setSubject(userName)
-                .setExpiration(new Date(System.currentTimeMillis() + SecurityConstants.TOKEN_EXPIRATION_TIME))
-                .signWith(SignatureAlgorithm.HS512, SecurityConstants.getTokenSecret())
-                .compact();
-        UserService userService = (UserService) SpringApplicationContext.getBean("userServiceImpl");
-        UserDto userDto = userService.getUser(userName);
+        String token = tokenSignTimer.record(
+                () -> jwtCodec.sign(userName, SecurityConstants.TOKEN_EXPIRATION_TIME, claims));
 
         response.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
-        response.addHeader("UserID", userDto.getUserId());
+        response.addHeader("UserID", userId);
     }
 }
@@ -1,9 +1,17 @@
 package com.learningplatform.webapp.security;
 
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
 import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.datasource.ReadYourWritesWindow;
 import com.learningplatform.webapp.security.model.entity.UserEntity;
 import com.learningplatform.webapp.security.model.repository.UserRepository;
-import io.jsonwebtoken.Jwts;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,10 +25,40 @@ import java.io.IOException;
 
 public class AuthorizationFilter extends BasicAuthenticationFilter {
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenVersionCache tokenVersionCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final Timer tokenParseTimer;
+    private final Timer principalLoadTimer;
+    private final Counter authenticatedCounter;
+    private final Counter rejectedCounter;
 
-    public AuthorizationFilter(AuthenticationManager authenticationManager, UserRepository userRepository) {
+    public AuthorizationFilter(AuthenticationManager authenticationManager, UserRepository userRepository,
+                               PrincipalCache principalCache, VerifiedTokenCache verifiedTokenCache,
+                               TokenVersionCache tokenVersionCache, TokenRevocationList tokenRevocationList,
+                               MeterRegistry meterRegistry) {
         super(authenticationManager);
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenVersionCache = tokenVersionCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.tokenParseTimer = Timer.builder("security.token.parse")
+                .description("Access token verification, including cache hits")
+                .register(meterRegistry);
+        this.principalLoadTimer = Timer.builder("security.principal.load")
+                .description("Principal lookup in the database on a principal cache miss")
+                .register(meterRegistry);
+        this.authenticatedCounter = authorizationCounter(meterRegistry, "authenticated");
+        this.rejectedCounter = authorizationCounter(meterRegistry, "rejected");
+    }
+
+    private static Counter authorizationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("security.authorization")
+                .description("Requests carrying a bearer token, by result")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     @Override
@@ -33,7 +71,14 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
             return;
         }
 
-        UsernamePasswordAuthenticationToken authentication = getAuthentication(request);
+        UsernamePasswordAuthenticationToken authentication;
+        try {
+            authentication = getAuthentication(request);
+        } catch (RuntimeException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+        (authentication != null ? authenticatedCounter : rejectedCounter).increment();
         SecurityContextHolder.getContext().setAuthentication(authentication);
         chain.doFilter(request, response);
     }
@@ -42,20 +87,24 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
         String token = request.getHeader(SecurityConstants.HEADER_STRING);
 
         if (token != null) {
-            token = token.replace(SecurityConstants.TOKEN_PREFIX, "");
+            String bearerToken = token.replace(SecurityConstants.TOKEN_PREFIX, "");
 
-            String user = Jwts.parser()
-                    .setSigningKey(SecurityConstants.getTokenSecret())
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
+            Claims claims = tokenParseTimer.record(() -> verifiedTokenCache.parse(bearerToken));
+            String user = claims.getSubject();
 
             if (user != null) {
-                UserEntity userEntity = userRepository.findByEmail(user);
-                if(userEntity == null) return null;
+                if (tokenRevocationList.isRevoked(claims)) return null;
 
-                UserPrincipal userPrincipal = new UserPrincipal(userEntity);
-                return new UsernamePasswordAuthenticationToken(userPrincipal, null, userPrincipal.getAuthorities());
+                UserPrincipal userPrincipal = claims.containsKey(SecurityConstants.TOKEN_VERSION_CLAIM)
+                        ? principalFromClaims(claims)
+                        : principalCache.get(user, this::loadPrincipal);
+                if(userPrincipal == null) return null;
+
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(userPrincipal, null, userPrincipal.getAuthorities());
+                // The claims of the token, for POST /users/logout
+                authentication.setDetails(claims);
+                return authentication;
             }
 
             return null;
@@ -63,4 +112,20 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
 
         return null;
     }
+
+    private UserPrincipal principalFromClaims(Claims claims) {
+        UserPrincipal userPrincipal = UserPrincipal.fromClaims(claims);
+
+        if (userPrincipal == null
+                || !tokenVersionCache.isCurrent(userPrincipal.getUserId(), userPrincipal.getTokenVersion())) {
+            return null;
+        }
+        return userPrincipal;
+    }
+
+    private UserPrincipal loadPrincipal(String email) {
+        UserEntity userEntity = principalLoadTimer.record(() -> ReadYourWritesWindow.readingAs(email,
+                () -> userRepository.findWithAuthoritiesByEmail(email)));
+        return userEntity == null ? null : new UserPrincipal(userEntity);
+    }
 }
@@ -1,56 +1,149 @@
 package com.learningplatform.webapp.security;
 
-import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.constants.SecurityConstants;
 import com.learningplatform.webapp.security.model.entity.RoleEntity;
 import com.learningplatform.webapp.security.model.entity.UserEntity;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a user taken when the principal is built, so it can be cached and shared
+ * between requests without holding on to the JPA entity.
+ */
 public class UserPrincipal implements UserDetails {
     private static final long serialVersionUID = 6337893426653023208L;
 
-    private final UserEntity userEntity;
-    private String userId;
+    private final String userId;
+    private final String email;
+    private final String encryptedPassword;
+    private final boolean enabled;
+    private final long tokenVersion;
+    private final Collection<GrantedAuthority> authorities;
 
     public UserPrincipal(UserEntity userEntity) {
-        this.userEntity = userEntity;
         this.userId = userEntity.getUserId();
+        this.email = userEntity.getEmail();
+        this.encryptedPassword = userEntity.getEncryptedPassword();
+        this.enabled = Boolean.TRUE.equals(userEntity.getEmailVerificationStatus());
+        this.tokenVersion = userEntity.getTokenVersion() == null ? 0L : userEntity.getTokenVersion();
+        this.authorities = Collections.unmodifiableSet(collectAuthorities(userEntity.getRoles()));
     }
 
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        Collection<GrantedAuthority> authorities = new HashSet<>();
-        Collection<AuthorityEntity> authorityEntities = new HashSet<>();
+    /**
+     * Builds a principal from the claims of a self-contained access token. Such tokens are only issued
+     * after a successful login, so the account is enabled and no password is carried.
+     */
+    public UserPrincipal(String userId, String email, long tokenVersion, Collection<String> authorityNames) {
+        this(userId, email, null, true, tokenVersion, authorityNames);
+    }
+
+    /**
+     * Builds a principal from columns read without the JPA entity graph, as the reactive stack does.
+     */
+    public UserPrincipal(String userId, String email, String encryptedPassword, boolean enabled, long tokenVersion,
+                         Collection<String> authorityNames) {
+        this.userId = userId;
+        this.email = email;
+        this.encryptedPassword = encryptedPassword;
+        this.enabled = enabled;
+        this.tokenVersion = tokenVersion;
+
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        authorityNames.forEach(name -> authorities.add(new SimpleGrantedAuthority(name)));
+        this.authorities = Collections.unmodifiableSet(authorities);
+    }
+
+    /**
+     * Principal carried by a self-contained access token, or {@code null} when the token lacks the user id or
+     * version claims. The caller still has to check the version against the current one.
+     */
+    public static UserPrincipal fromClaims(Claims claims) {
+        String userId = claims.get(SecurityConstants.USER_ID_CLAIM, String.class);
+        Long tokenVersion = claims.get(SecurityConstants.TOKEN_VERSION_CLAIM, Long.class);
+
+        if (userId == null || tokenVersion == null) return null;
+
+        Collection<String> authorityNames = new ArrayList<>();
+        authorityNames.addAll(stringList(claims.get(SecurityConstants.ROLES_CLAIM)));
+        authorityNames.addAll(stringList(claims.get(SecurityConstants.AUTHORITIES_CLAIM)));
+
+        return new UserPrincipal(userId, claims.getSubject(), tokenVersion, authorityNames);
+    }
 
-        // Get user Roles
-        Collection<RoleEntity> roles = userEntity.getRoles();
+    /**
+     * Claims that {@link #fromClaims(Claims)} turns back into this principal: the public user id, the role and
+     * authority names, and the token version.
+     */
+    public Map<String, Object> toClaims() {
+        List<String> roles = new ArrayList<>();
+        List<String> authorityNames = new ArrayList<>();
+
+        for (GrantedAuthority authority : authorities) {
+            if (authority.getAuthority().startsWith(SecurityConstants.ROLE_PREFIX)) {
+                roles.add(authority.getAuthority());
+            } else {
+                authorityNames.add(authority.getAuthority());
+            }
+        }
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(SecurityConstants.USER_ID_CLAIM, userId);
+        claims.put(SecurityConstants.ROLES_CLAIM, roles);
+        claims.put(SecurityConstants.AUTHORITIES_CLAIM, authorityNames);
+        claims.put(SecurityConstants.TOKEN_VERSION_CLAIM, tokenVersion);
+        return claims;
+    }
+
+    private static List<String> stringList(Object claim) {
+        List<String> returnValue = new ArrayList<>();
+        if (claim instanceof Collection) {
+            ((Collection<?>) claim).forEach(value -> returnValue.add(String.valueOf(value)));
+        }
+        return returnValue;
+    }
 
-        if(roles == null) {
+    private static Set<GrantedAuthority> collectAuthorities(Collection<RoleEntity> roles) {
+        Set<GrantedAuthority> authorities = new HashSet<>();
+
+        if (roles == null) {
             return authorities;
         }
 
-        roles.forEach((roleEntity -> {
+        roles.forEach(roleEntity -> {
             authorities.add(new SimpleGrantedAuthority(roleEntity.getName()));
-            authorityEntities.addAll(roleEntity.getAuthorities());
-        }));
+            if (roleEntity.getAuthorities() != null) {
+                roleEntity.getAuthorities().forEach(authorityEntity ->
+                        authorities.add(new SimpleGrantedAuthority(authorityEntity.getName())));
+            }
+        });
 
-        authorityEntities.forEach(authorityEntity -> authorities.add(new SimpleGrantedAuthority(authorityEntity.getName())));
+        return authorities;
+    }
 
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
     }
 
     @Override
     public String getPassword() {
-        return this.userEntity.getEncryptedPassword();
+        return this.encryptedPassword;
     }
 
     @Override
     public String getUsername() {
-        return this.userEntity.getEmail();
+        return this.email;
     }
 
     @Override
@@ -70,14 +163,14 @@ public class UserPrincipal implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return this.userEntity.getEmailVerificationStatus();
+        return this.enabled;
     }
 
     public String getUserId() {
         return userId;
     }
 
-    public void setUserId(String userId) {
-        this.userId = userId;
+    public long getTokenVersion() {
+        return tokenVersion;
     }
 }
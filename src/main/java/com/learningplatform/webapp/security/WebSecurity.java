@@ -1,8 +1,17 @@
 package com.learningplatform.webapp.security;
 
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
 import com.learningplatform.webapp.security.constants.SecurityConstants;
 import com.learningplatform.webapp.security.logic.service.UserService;
 import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.throttle.LoginThrottle;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -10,21 +19,41 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 @EnableWebSecurity
+@Profile("!reactive")
 @EnableGlobalMethodSecurity(securedEnabled = true, prePostEnabled = true)
 public class WebSecurity extends WebSecurityConfigurerAdapter {
 
     private final UserService userDetailsService;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenVersionCache tokenVersionCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final AppProperties appProperties;
+    private final JwtCodec jwtCodec;
+    private final LoginThrottle loginThrottle;
+    private final MeterRegistry meterRegistry;
 
-    public WebSecurity(UserService userDetailsService, BCryptPasswordEncoder bCryptPasswordEncoder,
-                       UserRepository userRepository) {
+    public WebSecurity(UserService userDetailsService, PasswordEncoder passwordEncoder,
+                       UserRepository userRepository, PrincipalCache principalCache,
+                       VerifiedTokenCache verifiedTokenCache, TokenVersionCache tokenVersionCache,
+                       TokenRevocationList tokenRevocationList, AppProperties appProperties, JwtCodec jwtCodec,
+                       LoginThrottle loginThrottle, MeterRegistry meterRegistry) {
         this.userDetailsService = userDetailsService;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenVersionCache = tokenVersionCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.appProperties = appProperties;
+        this.jwtCodec = jwtCodec;
+        this.loginThrottle = loginThrottle;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -36,20 +65,26 @@ public class WebSecurity extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.GET, SecurityConstants.VERIFICATION_EMAIL_URL).permitAll()
                 .antMatchers(HttpMethod.POST, SecurityConstants.PASSWORD_RESET_REQUEST_URL).permitAll()
                 .antMatchers(HttpMethod.POST, SecurityConstants.PASSWORD_RESET_URL).permitAll()
+                .antMatchers(HttpMethod.GET, SecurityConstants.HEALTH_URL).permitAll()
+                .antMatchers(SecurityConstants.PROMETHEUS_URL, SecurityConstants.LOGIN_THROTTLE_URL,
+                        SecurityConstants.LOGIN_THROTTLE_URL + "/**")
+                .hasRole("ADMIN")
                 .anyRequest().authenticated().and()
                 .addFilter(getAuthenticationFilter())
-                .addFilter(new AuthorizationFilter(authenticationManager(), userRepository));
+                .addFilter(new AuthorizationFilter(authenticationManager(), userRepository, principalCache,
+                        verifiedTokenCache, tokenVersionCache, tokenRevocationList, meterRegistry));
 
     }
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(bCryptPasswordEncoder);
+        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
     }
 
     public AuthenticationFilter getAuthenticationFilter() throws Exception {
-        final AuthenticationFilter filter = new AuthenticationFilter(authenticationManager());
-        filter.setFilterProcessesUrl("/users/login");
+        final AuthenticationFilter filter = new AuthenticationFilter(authenticationManager(), appProperties, jwtCodec,
+                loginThrottle, meterRegistry);
+        filter.setFilterProcessesUrl(SecurityConstants.LOGIN_URL);
         return filter;
     }
 }
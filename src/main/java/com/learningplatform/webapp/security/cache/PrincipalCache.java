@@ -0,0 +1,82 @@
+package com.learningplatform.webapp.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-based cache of immutable {@link UserPrincipal} snapshots keyed by the token subject (email).
+ * Every write path that changes a user must call {@link #evict(String)}; the TTL bounds staleness for
+ * changes made by other nodes.
+ */
+@Component
+public class PrincipalCache {
+    private final Cache<String, UserPrincipal> cache;
+
+    public PrincipalCache(AppProperties appProperties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(appProperties.getPrincipalCacheMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(appProperties.getPrincipalCacheTtlSeconds()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached principal or loads it with {@code loader}. A {@code null} result is not cached.
+     */
+    public UserPrincipal get(String email, Function<String, UserPrincipal> loader) {
+        return cache.get(email, loader);
+    }
+
+    /**
+     * Cached principal or {@code null}, for callers that load on a miss themselves without blocking.
+     */
+    public UserPrincipal getIfPresent(String email) {
+        return cache.getIfPresent(email);
+    }
+
+    public void put(String email, UserPrincipal userPrincipal) {
+        cache.put(email, userPrincipal);
+    }
+
+    public void evict(String email) {
+        if (email == null) return;
+
+        cache.invalidate(email);
+
+        // Evict again once the surrounding transaction commits, so a concurrent load of the old row
+        // cannot repopulate the cache in between.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(email);
+                }
+            });
+        }
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+}
@@ -0,0 +1,88 @@
+package com.learningplatform.webapp.security.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level and query cache for the role and authority reference data, held in bounded local
+ * Caffeine caches. Writes through Hibernate evict the cached entries, collections and query results; the TTL
+ * bounds how long another node keeps serving a change. Every region has to be declared here, a cached entity
+ * or collection without one fails at startup instead of getting an unbounded cache.
+ */
+@Configuration
+public class SecondLevelCacheConfiguration {
+    static final List<String> DOMAIN_REGIONS = Arrays.asList(
+            RoleEntity.class.getName(),
+            RoleEntity.class.getName() + ".authorities",
+            AuthorityEntity.class.getName());
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(AppProperties appProperties) {
+        return properties -> properties.putAll(hibernateProperties(appProperties.getReferenceDataCacheMaxSize(),
+                Duration.ofSeconds(appProperties.getReferenceDataCacheTtlSeconds())));
+    }
+
+    public static Map<String, Object> hibernateProperties(long maxSize, Duration ttl) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+        properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+        properties.put(ConfigSettings.CACHE_MANAGER, cacheManager(maxSize, ttl));
+        properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        return properties;
+    }
+
+    /**
+     * A cache manager of its own, so two session factories in one JVM never share entries. Hibernate closes
+     * it with the session factory.
+     */
+    private static CacheManager cacheManager(long maxSize, Duration ttl) {
+        CaffeineCachingProvider cachingProvider = new CaffeineCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager(
+                URI.create("hibernate-" + UUID.randomUUID()), cachingProvider.getDefaultClassLoader());
+
+        for (String region : DOMAIN_REGIONS) {
+            cacheManager.createCache(region, bounded(maxSize, ttl));
+        }
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded(maxSize, ttl));
+
+        // Query results are checked against these per-table timestamps, so they must outlive every result
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                configuration());
+        return cacheManager;
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = configuration();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate caches immutable disassembled state, copying it on every access would only cost time
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
@@ -0,0 +1,81 @@
+package com.learningplatform.webapp.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Short-lived cache of the current {@code token_version} per public user id, used to check self-contained
+ * tokens without loading the user graph. Local bumps evict immediately; the TTL bounds how long another
+ * node keeps accepting a revoked token.
+ */
+@Component
+public class TokenVersionCache {
+    private static final long MISSING = -1L;
+
+    private final UserRepository userRepository;
+    private final Cache<String, Long> cache;
+
+    public TokenVersionCache(UserRepository userRepository, AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(appProperties.getTokenVersionCacheMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(appProperties.getTokenVersionCacheTtlSeconds()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns true when the user still exists and {@code tokenVersion} is its current version.
+     */
+    public boolean isCurrent(String userId, long tokenVersion) {
+        long current = cache.get(userId, id -> {
+            Long version = userRepository.findTokenVersionByUserId(id);
+            return version == null ? MISSING : version;
+        });
+        return current != MISSING && current == tokenVersion;
+    }
+
+    /**
+     * Like {@link #isCurrent(String, long)} but returns {@code null} on a miss instead of loading, for callers
+     * that load the version themselves without blocking and then {@link #put(String, Long)} it.
+     */
+    public Boolean isCurrentIfCached(String userId, long tokenVersion) {
+        Long current = cache.getIfPresent(userId);
+        if (current == null) return null;
+        return current != MISSING && current == tokenVersion;
+    }
+
+    /**
+     * Caches the current version of {@code userId}; {@code null} records that the user does not exist.
+     */
+    public void put(String userId, Long tokenVersion) {
+        cache.put(userId, tokenVersion == null ? MISSING : tokenVersion);
+    }
+
+    public void evict(String userId) {
+        if (userId == null) return;
+
+        cache.invalidate(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,104 @@
+package com.learningplatform.webapp.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the claims of tokens that already passed signature verification, keyed by a SHA-256 digest of
+ * the raw token. Entries never outlive the token's own {@code exp}; anything not in the cache goes through
+ * the full {@link JwtCodec} verification, so a token that would fail verification is never accepted.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final JwtCodec jwtCodec;
+    private final long maxTtlNanos;
+    private final Cache<String, Claims> cache;
+
+    public VerifiedTokenCache(JwtCodec jwtCodec, AppProperties appProperties) {
+        this.jwtCodec = jwtCodec;
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(appProperties.getTokenCacheMaxTtlSeconds());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(appProperties.getTokenCacheMaxSize())
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the verified claims of {@code token}, throwing the same jjwt exceptions as
+     * {@code Jwts.parser().parseClaimsJws} for invalid or expired tokens.
+     */
+    public Claims parse(String token) {
+        String key = digest(token);
+
+        Claims claims = cache.getIfPresent(key);
+        if (claims != null && !hasExpired(claims)) {
+            return claims;
+        }
+
+        Claims verified = jwtCodec.parse(token);
+
+        claims = new DefaultClaims(Collections.unmodifiableMap(verified));
+        cache.put(key, claims);
+        return claims;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private static boolean hasExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return maxTtlNanos;
+            }
+            long untilExpiration = TimeUnit.MILLISECONDS.toNanos(expiration.getTime() - System.currentTimeMillis());
+            return Math.max(0, Math.min(untilExpiration, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.learningplatform.webapp.security.concurrent;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Where blocking work runs. With {@code threads.virtual=true} (Java 21+) Tomcat hands every request to a new
+ * virtual thread, so JDBC and SMTP waits no longer hold one of a fixed number of request threads, and
+ * {@code @Async} methods run on virtual threads too. Password hashing keeps its own bounded platform pool,
+ * see {@link com.learningplatform.webapp.security.crypto.PasswordHashingExecutor}.
+ * <p>
+ * Request threads keep the {@code SecurityContextHolder} thread-local as before; {@code @Async} tasks get the
+ * caller's security context through {@link DelegatingSecurityContextAsyncTaskExecutor} in both modes.
+ */
+@Configuration
+@EnableAsync
+public class ThreadingConfiguration {
+    private final Logger logger = LoggerFactory.getLogger(ThreadingConfiguration.class);
+    private final boolean virtualThreads;
+    private final List<ExecutorService> virtualThreadExecutors = new CopyOnWriteArrayList<>();
+    private ThreadPoolTaskExecutor applicationTaskPool;
+
+    public ThreadingConfiguration(AppProperties appProperties) {
+        this.virtualThreads = appProperties.isVirtualThreadsEnabled();
+
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("threads.virtual=true needs Java 21 or newer, running on "
+                    + System.getProperty("java.version"));
+        }
+        logger.info("Blocking work runs on {} threads", virtualThreads ? "virtual" : "platform");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreads) {
+                protocolHandler.setExecutor(newVirtualThreadExecutor("http-"));
+            }
+        };
+    }
+
+    /**
+     * Replaces Boot's {@code applicationTaskExecutor}, so Spring MVC async requests use it as well. The
+     * platform pool is built from {@code spring.task.execution.*} like Boot's own.
+     */
+    @Bean(name = {"taskExecutor", TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor taskExecutor(TaskExecutorBuilder taskExecutorBuilder) {
+        if (virtualThreads) {
+            return new DelegatingSecurityContextAsyncTaskExecutor(
+                    new TaskExecutorAdapter(newVirtualThreadExecutor("task-")));
+        }
+
+        applicationTaskPool = taskExecutorBuilder.build();
+        applicationTaskPool.initialize();
+        return new DelegatingSecurityContextAsyncTaskExecutor(applicationTaskPool);
+    }
+
+    private ExecutorService newVirtualThreadExecutor(String prefix) {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(prefix);
+        virtualThreadExecutors.add(executor);
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (applicationTaskPool != null) applicationTaskPool.shutdown();
+        virtualThreadExecutors.forEach(ExecutorService::shutdown);
+    }
+}
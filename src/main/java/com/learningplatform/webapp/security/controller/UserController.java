@@ -1,27 +1,44 @@
 package com.learningplatform.webapp.security.controller;
 
+import com.learningplatform.webapp.security.logic.service.UserBulkService;
 import com.learningplatform.webapp.security.logic.service.UserService;
 import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
+import com.learningplatform.webapp.security.model.mapper.UserMapper;
 import com.learningplatform.webapp.security.model.request.*;
 import com.learningplatform.webapp.security.model.response.OperationStatusModel;
 import com.learningplatform.webapp.security.model.response.RequestOperationStatus;
 import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import com.learningplatform.webapp.security.model.response.UserPageResponseModel;
 import com.learningplatform.webapp.security.shared.Roles;
-import org.modelmapper.ModelMapper;
+import io.jsonwebtoken.Claims;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("users")
 public class UserController {
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final UserService userService;
-    private final ModelMapper modelMapper = new ModelMapper();
+    private final UserBulkService userBulkService;
+    private final UserMapper userMapper = UserMapper.INSTANCE;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserBulkService userBulkService) {
         this.userService = userService;
+        this.userBulkService = userBulkService;
     }
 
     @PostAuthorize("hasRole('ADMIN') or returnObject.userId == principal.userId")
@@ -29,26 +46,54 @@ public class UserController {
     public UserDetailsResponseModel getUser(@PathVariable String id) {
         UserDto userDto = userService.getUserByUserId(id);
 
-        return modelMapper.map(userDto, UserDetailsResponseModel.class);
+        return userMapper.toResponseModel(userDto);
     }
 
     @PostMapping
     public UserDetailsResponseModel createUser(@RequestBody UserDetailsRequestModel userDetails) {
-        UserDto userDto = modelMapper.map(userDetails, UserDto.class);
+        UserDto userDto = userMapper.toUserDto(userDetails);
         userDto.setRoles(new HashSet<>(Collections.singletonList(Roles.ROLE_USER.name())));
 
         UserDto createdUser = userService.createUser(userDto);
 
-        return modelMapper.map(createdUser, UserDetailsResponseModel.class);
+        return userMapper.toResponseModel(createdUser);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void createUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream inputStream,
+                            HttpServletResponse response) throws IOException {
+        BulkFormat format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? BulkFormat.NDJSON : BulkFormat.CSV;
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        userBulkService.importUsers(inputStream, format, response.getOutputStream());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(path = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public void exportUsers(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                            HttpServletResponse response) throws IOException {
+        BulkFormat format = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(TEXT_CSV))
+                ? BulkFormat.CSV : BulkFormat.NDJSON;
+
+        response.setContentType(format == BulkFormat.CSV ? TEXT_CSV.toString() : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        userBulkService.exportUsers(format, response.getOutputStream());
     }
 
     @PreAuthorize("hasRole('ADMIN') or #id == principal.userId")
     @PutMapping(path = "/{id}")
     public UserDetailsResponseModel updateUser(@PathVariable String id, @RequestBody UserDetailsUpdateRequestModel userDetails) {
-        UserDto userDto = modelMapper.map(userDetails, UserDto.class);
+        UserDto userDto = userMapper.toUserDto(userDetails);
 
         UserDto updatedUser = userService.updateUser(id, userDto);
-        return modelMapper.map(updatedUser, UserDetailsResponseModel.class);
+        return userMapper.toResponseModel(updatedUser);
     }
 
     @PreAuthorize("hasRole('ADMIN') or #id == principal.userId")
@@ -71,9 +116,30 @@ public class UserController {
         List<UserDto> users = userService.getUsers(page, limit);
 
         for(UserDto userDto : users) {
-            returnValue.add(modelMapper.map(userDto, UserDetailsResponseModel.class));
+            returnValue.add(userMapper.toResponseModel(userDto));
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Cursor mode of the listing, selected by the presence of {@code cursor}; pass an empty cursor for the first
+     * page and the returned {@code next} for the following ones.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(params = "cursor")
+    public UserPageResponseModel getUsers(@RequestParam(value = "cursor") String cursor,
+                                          @RequestParam(value = "limit", defaultValue = "25") int limit) {
+        UserPageDto usersPage = userService.getUsers(cursor, limit);
+
+        List<UserDetailsResponseModel> users = new ArrayList<>();
+        for (UserDto userDto : usersPage.getUsers()) {
+            users.add(userMapper.toResponseModel(userDto));
         }
 
+        UserPageResponseModel returnValue = new UserPageResponseModel();
+        returnValue.setUsers(users);
+        returnValue.setNext(usersPage.getNext());
         return returnValue;
     }
 
@@ -127,4 +193,21 @@ public class UserController {
 
         return returnValue;
     }
+
+    /**
+     * Revokes the bearer token of the request until it expires.
+     */
+    @PostMapping(path = "/logout")
+    public OperationStatusModel logout(Authentication authentication) {
+        OperationStatusModel returnValue = new OperationStatusModel();
+        returnValue.setOperationName(RequestOperationName.LOGOUT.name());
+        returnValue.setOperationResult(RequestOperationStatus.ERROR.name());
+
+        if (authentication.getDetails() instanceof Claims
+                && userService.revokeToken((Claims) authentication.getDetails())) {
+            returnValue.setOperationResult(RequestOperationStatus.SUCCESS.name());
+        }
+
+        return returnValue;
+    }
 }
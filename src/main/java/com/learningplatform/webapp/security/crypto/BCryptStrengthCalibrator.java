@@ -0,0 +1,59 @@
+package com.learningplatform.webapp.security.crypto;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Picks the BCrypt strength for this machine. Each strength step doubles the work, so one measurement at a
+ * cheap reference strength is enough to estimate the cost of every other strength.
+ */
+public final class BCryptStrengthCalibrator {
+    static final int MIN_BCRYPT_STRENGTH = 4;
+    static final int MAX_BCRYPT_STRENGTH = 31;
+    private static final int REFERENCE_STRENGTH = 8;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * Returns the highest strength in [{@code minStrength}, {@code maxStrength}] whose estimated hashing time
+     * does not exceed {@code targetMillis}, or {@code minStrength} when even that is slower.
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        if (minStrength < MIN_BCRYPT_STRENGTH || maxStrength > MAX_BCRYPT_STRENGTH || minStrength > maxStrength) {
+            throw new IllegalArgumentException("Invalid BCrypt strength bounds: " + minStrength + ".." + maxStrength);
+        }
+
+        double referenceNanos = measure(REFERENCE_STRENGTH);
+        double targetNanos = targetMillis * 1_000_000.0;
+
+        int strength = minStrength;
+        while (strength < maxStrength && estimate(referenceNanos, strength + 1) <= targetNanos) {
+            strength++;
+        }
+        return strength;
+    }
+
+    static double estimate(double referenceNanos, int strength) {
+        return referenceNanos * Math.pow(2, strength - REFERENCE_STRENGTH);
+    }
+
+    /**
+     * Fastest of a few runs, so JIT warm-up and scheduling noise do not push the strength down.
+     */
+    private static double measure(int strength) {
+        String salt = BCrypt.gensalt(strength);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            BCrypt.hashpw("calibration", salt);
+        }
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest;
+    }
+}
@@ -0,0 +1,52 @@
+package com.learningplatform.webapp.security.crypto;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Collections;
+
+/**
+ * Password hashing policy. New hashes are stored as {@code {bcrypt}$2a$<strength>$...}, so each one records
+ * its algorithm and cost. The strength is calibrated at startup to {@code passwordHashing.targetMillis} within
+ * {@code passwordHashing.minStrength..maxStrength}. Hashes stored before the prefix existed are still matched
+ * as BCrypt. Anything below the current policy reports {@code upgradeEncoding}, and the login rehashes it.
+ */
+@Configuration
+public class PasswordEncoderConfiguration {
+    public static final String BCRYPT_ID = "bcrypt";
+    private static final Logger logger = LoggerFactory.getLogger(PasswordEncoderConfiguration.class);
+
+    @Bean
+    public DelegatingPasswordEncoder delegatingPasswordEncoder(AppProperties appProperties) {
+        int strength = BCryptStrengthCalibrator.calibrate(appProperties.getPasswordHashingTargetMillis(),
+                appProperties.getPasswordHashingMinStrength(), appProperties.getPasswordHashingMaxStrength());
+        logger.info("Using BCrypt strength {} for a target of {} ms per hash", strength,
+                appProperties.getPasswordHashingTargetMillis());
+        return delegatingPasswordEncoder(strength);
+    }
+
+    /**
+     * Hashing off the request threads, see {@link PasswordHashingExecutor}; used for logins, signups and resets.
+     */
+    @Bean
+    @Primary
+    public PasswordEncoder passwordEncoder(DelegatingPasswordEncoder delegatingPasswordEncoder,
+                                           PasswordHashingExecutor passwordHashingExecutor) {
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, passwordHashingExecutor);
+    }
+
+    static DelegatingPasswordEncoder delegatingPasswordEncoder(int strength) {
+        BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder returnValue = new DelegatingPasswordEncoder(BCRYPT_ID,
+                Collections.singletonMap(BCRYPT_ID, bCryptPasswordEncoder));
+        returnValue.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        return returnValue;
+    }
+}
@@ -0,0 +1,93 @@
+package com.learningplatform.webapp.security.crypto;
+
+import com.learningplatform.webapp.security.exceptions.PasswordHashingRejectedException;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool that runs every password encode and match, so a burst of logins or signups queues here instead
+ * of occupying all request threads and CPU cores. When {@code passwordHashing.queueCapacity} tasks are already
+ * waiting, callers fail fast with {@link PasswordHashingRejectedException}.
+ * <p>
+ * Publishes the {@code executor.*} gauges under {@code name=passwordHashing}, plus
+ * {@code password.hashing.queue.wait} and {@code password.hashing.rejected} for sizing.
+ */
+@Component
+public class PasswordHashingExecutor {
+    private static final String NAME = "passwordHashing";
+
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingExecutor(AppProperties appProperties, MeterRegistry meterRegistry) {
+        int threads = appProperties.getPasswordHashingThreads();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(appProperties.getPasswordHashingQueueCapacity()),
+                new CustomizableThreadFactory("password-hash-"), new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = appProperties.getPasswordHashingRetryAfterSeconds();
+        this.queueWaitTimer = Timer.builder("password.hashing.queue.wait")
+                .description("Time a password hashing task waits for a free thread")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+        new ExecutorServiceMetrics(executor, NAME, Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs {@code task} on the pool and waits for its result.
+     */
+    public <T> T execute(Supplier<T> task) {
+        CompletableFuture<T> future = submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Queues {@code task} without waiting, for callers that must not block such as the reactive stack.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
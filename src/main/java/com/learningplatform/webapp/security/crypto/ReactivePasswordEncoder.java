@@ -0,0 +1,32 @@
+package com.learningplatform.webapp.security.crypto;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link BoundedPasswordEncoder}: the hash runs on {@link PasswordHashingExecutor}
+ * and the returned {@link Mono} completes there, so an event-loop thread never computes or waits for BCrypt.
+ * A full queue surfaces as a {@link com.learningplatform.webapp.security.exceptions.PasswordHashingRejectedException}
+ * error signal.
+ */
+public class ReactivePasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public ReactivePasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return Mono.defer(() -> Mono.fromFuture(executor.submit(() -> delegate.encode(rawPassword))));
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return Mono.defer(() -> Mono.fromFuture(executor.submit(() -> delegate.matches(rawPassword, encodedPassword))));
+    }
+
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
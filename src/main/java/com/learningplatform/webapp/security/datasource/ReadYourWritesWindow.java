@@ -0,0 +1,89 @@
+package com.learningplatform.webapp.security.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the read-only transactions of an account on the primary for a short time after the account was written,
+ * so its owner reads their own writes despite replication lag. Accounts are keyed by email: the one passed to
+ * {@link #readingAs(String, Supplier)}, or else the authenticated user. The window is local to this node.
+ */
+@Component
+public class ReadYourWritesWindow {
+    private static final ThreadLocal<String> ACCOUNT = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWritesWindow(AppProperties appProperties) {
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(appProperties.getReadYourWritesMaxAccounts())
+                .expireAfterWrite(Duration.ofSeconds(appProperties.getReadYourWritesWindowSeconds()))
+                .build();
+    }
+
+    /**
+     * Runs {@code read} on behalf of {@code email}, for lookups made before anyone is authenticated, such as
+     * the login and the token check.
+     */
+    public static <T> T readingAs(String email, Supplier<T> read) {
+        String previous = ACCOUNT.get();
+        ACCOUNT.set(email);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                ACCOUNT.remove();
+            } else {
+                ACCOUNT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Opens the window for the written account and for the authenticated user who changed it. It is opened
+     * again once the surrounding transaction commits, so it lasts the full time after the write is visible.
+     */
+    public void recordWrite(String email) {
+        String caller = authenticatedAccount();
+        open(email, caller);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    open(email, caller);
+                }
+            });
+        }
+    }
+
+    private void open(String email, String caller) {
+        if (email != null) recentWrites.put(email, Boolean.TRUE);
+        if (caller != null) recentWrites.put(caller, Boolean.TRUE);
+    }
+
+    /**
+     * Whether the account of the current thread wrote recently, so its reads must go to the primary.
+     */
+    public boolean isOpen() {
+        String account = ACCOUNT.get();
+        if (account == null) account = authenticatedAccount();
+        return account != null && recentWrites.getIfPresent(account) != null;
+    }
+
+    private static String authenticatedAccount() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) return null;
+        return authentication.getName();
+    }
+}
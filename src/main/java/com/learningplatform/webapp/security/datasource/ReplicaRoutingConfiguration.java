@@ -0,0 +1,103 @@
+package com.learningplatform.webapp.security.datasource;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by configuring {@code replicaDataSources[0].url}. The application data source, Boot's or
+ * the reactive profile's, stays the primary and is wrapped in a {@link ReplicaRoutingDataSource}; the replica
+ * pools take the same {@code spring.datasource.hikari.*} settings.
+ */
+@Configuration
+@ConditionalOnProperty("replica-data-sources[0].url")
+public class ReplicaRoutingConfiguration {
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * Wraps the data source after Boot has bound its pool metrics. Its dependencies are looked up late, so
+     * they still get processed by every other post processor.
+     */
+    @Bean
+    public static BeanPostProcessor replicaRoutingPostProcessor(Environment environment,
+                                                                ObjectProvider<AppProperties> appProperties,
+                                                                ObjectProvider<ReadYourWritesWindow> readYourWritesWindow,
+                                                                ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RoutingPostProcessor(environment, appProperties, readYourWritesWindow, meterRegistry);
+    }
+
+    /**
+     * A session would otherwise hold the connection of its first transaction, read-only or not, until it closes.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionPerTransactionCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private static final class RoutingPostProcessor implements BeanPostProcessor, Ordered {
+        private final Environment environment;
+        private final ObjectProvider<AppProperties> appProperties;
+        private final ObjectProvider<ReadYourWritesWindow> readYourWritesWindow;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        RoutingPostProcessor(Environment environment, ObjectProvider<AppProperties> appProperties,
+                             ObjectProvider<ReadYourWritesWindow> readYourWritesWindow,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+            this.environment = environment;
+            this.appProperties = appProperties;
+            this.readYourWritesWindow = readYourWritesWindow;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource)
+                    || bean instanceof ReplicaRoutingDataSource) {
+                return bean;
+            }
+
+            List<DataSourceProperties> replicaProperties = appProperties.getObject().getReplicaDataSources();
+            List<DataSource> replicas = new ArrayList<>(replicaProperties.size());
+            for (int i = 0; i < replicaProperties.size(); i++) {
+                replicas.add(replica(replicaProperties.get(i), i));
+            }
+
+            ReadYourWritesWindow window = readYourWritesWindow.getObject();
+            return new ReplicaRoutingDataSource((DataSource) bean, replicas, window::isOpen);
+        }
+
+        private HikariDataSource replica(DataSourceProperties properties, int index) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + index);
+            replica.setReadOnly(true);
+            meterRegistry.ifAvailable(registry ->
+                    replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            return replica;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
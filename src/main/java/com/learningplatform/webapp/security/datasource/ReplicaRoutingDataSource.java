@@ -0,0 +1,75 @@
+package com.learningplatform.webapp.security.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sends read-only transactions to the replicas, round robin, and everything else to the primary: writes, reads
+ * outside a read-only transaction and reads of an account inside its read-your-writes window. The physical
+ * connection is only taken on the first statement, because the JPA transaction manager opens the connection
+ * before the read-only flag of the transaction is visible.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, BooleanSupplier pinnedToPrimary) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        setTargetDataSource(new Router(primary, this.replicas, pinnedToPrimary));
+        afterPropertiesSet();
+    }
+
+    /**
+     * Closes the primary and replica pools along with the application context.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable) ((AutoCloseable) replica).close();
+        }
+        if (primary instanceof AutoCloseable) ((AutoCloseable) primary).close();
+    }
+
+    private static final class Router extends AbstractRoutingDataSource {
+        private static final String PRIMARY = "primary";
+
+        private final int replicaCount;
+        private final BooleanSupplier pinnedToPrimary;
+        private final AtomicInteger next = new AtomicInteger();
+
+        Router(DataSource primary, List<DataSource> replicas, BooleanSupplier pinnedToPrimary) {
+            this.replicaCount = replicas.size();
+            this.pinnedToPrimary = pinnedToPrimary;
+
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(PRIMARY, primary);
+            for (int i = 0; i < replicaCount; i++) {
+                targets.put(i, replicas.get(i));
+            }
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+            setLenientFallback(false);
+            afterPropertiesSet();
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (replicaCount == 0
+                    || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    || pinnedToPrimary.getAsBoolean()) {
+                return PRIMARY;
+            }
+            return Math.floorMod(next.getAndIncrement(), replicaCount);
+        }
+    }
+}
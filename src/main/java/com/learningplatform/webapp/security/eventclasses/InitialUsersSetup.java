@@ -12,13 +12,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import javax.transaction.Transactional;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 
 @Component
 public class InitialUsersSetup {
@@ -26,18 +27,18 @@ public class InitialUsersSetup {
     private final AuthorityRepository authorityRepository;
     private final RoleRepository roleRepository;
     private final Utils utils;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
 
 
     public InitialUsersSetup(AuthorityRepository authorityRepository,
                              RoleRepository roleRepository, Utils utils,
-                             BCryptPasswordEncoder bCryptPasswordEncoder,
+                             PasswordEncoder passwordEncoder,
                              UserRepository userRepository) {
         this.authorityRepository = authorityRepository;
         this.roleRepository = roleRepository;
         this.utils = utils;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
     }
 
@@ -67,7 +68,7 @@ public class InitialUsersSetup {
             adminUser.setEmail("hubert1234.91@gmail.com");
             adminUser.setEmailVerificationStatus(true);
             adminUser.setUserId(utils.generateUserId(30));
-            adminUser.setEncryptedPassword(bCryptPasswordEncoder.encode("admin"));
+            adminUser.setEncryptedPassword(passwordEncoder.encode("admin"));
             adminUser.setRoles(Collections.singletonList(roleAdmin));
             userRepository.save(adminUser);
         }
@@ -86,7 +87,7 @@ public class InitialUsersSetup {
         RoleEntity role = roleRepository.findByName(name);
         if (role == null) {
             role = new RoleEntity(name);
-            role.setAuthorities(authorities);
+            role.setAuthorities(new HashSet<>(authorities));
             roleRepository.save(role);
         }
         return role;
@@ -7,9 +7,11 @@ public enum ErrorMessages {
     INTERNAL_SERVER_ERROR("Internal server error"),
     NO_RECORD_FOUND("Record with provided id is not found"),
     AUTHENTICATION_FAILED("Authentication failed"),
+    COULD_NOT_CREATE_RECORD("Could not create record"),
     COULD_NOT_UPDATE_RECORD("Could not update record"),
     COULD_NOT_DELETE_RECORD("Could not delete record"),
-    EMAIL_ADDRESS_NOT_VERIFIED("Email address could not be verified");
+    EMAIL_ADDRESS_NOT_VERIFIED("Email address could not be verified"),
+    INVALID_CURSOR("Invalid pagination cursor");
 
 
     private String errorMessage;
@@ -0,0 +1,20 @@
+package com.learningplatform.webapp.security.exceptions;
+
+/**
+ * Thrown when an email or client address has used up its login attempts; mapped to 429 with a
+ * {@code Retry-After} header.
+ */
+public class LoginThrottledException extends RuntimeException {
+    private static final long serialVersionUID = -2967110513986412254L;
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(long retryAfterSeconds) {
+        super("Too many login attempts, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.learningplatform.webapp.security.exceptions;
+
+/**
+ * Thrown when the password hashing queue is full; mapped to 503 with a {@code Retry-After} header.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 4410386742117208915L;
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(long retryAfterSeconds) {
+        super("Server is busy, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.learningplatform.webapp.security.logic.service;
+
+import com.learningplatform.webapp.security.model.request.BulkFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface UserBulkService {
+    /**
+     * Creates a user for every row of {@code input} and writes one NDJSON result line per row to {@code output}.
+     */
+    void importUsers(InputStream input, BulkFormat format, OutputStream output) throws IOException;
+
+    /**
+     * Writes every user to {@code output} as NDJSON or CSV, in id order.
+     */
+    void exportUsers(BulkFormat format, OutputStream output) throws IOException;
+}
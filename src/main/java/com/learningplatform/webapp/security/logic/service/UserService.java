@@ -2,19 +2,24 @@ package com.learningplatform.webapp.security.logic.service;
 
 
 import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
 import com.learningplatform.webapp.security.model.response.OperationStatusModel;
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import java.util.List;
 
-public interface UserService extends UserDetailsService {
+public interface UserService extends UserDetailsService, UserDetailsPasswordService {
     UserDto createUser(UserDto user);
     void deleteUser(String userId);
     List<UserDto> getUsers(int page, int limit);
+    UserPageDto getUsers(String cursor, int limit);
     UserDto getUser(String email);
     UserDto getUserByUserId(String userId);
     UserDto updateUser(String userId, UserDto user);
     boolean verifyEmailToken(String token);
     boolean requestPasswordReset(String email);
     boolean resetPassword(String token, String password);
+    boolean revokeToken(Claims claims);
 }
@@ -0,0 +1,452 @@
+package com.learningplatform.webapp.security.logic.serviceImpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningplatform.webapp.security.exceptions.ErrorMessages;
+import com.learningplatform.webapp.security.logic.service.UserBulkService;
+import com.learningplatform.webapp.security.mail.EmailOutbox;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.RoleRepository;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.model.request.BulkFormat;
+import com.learningplatform.webapp.security.model.request.UserDetailsRequestModel;
+import com.learningplatform.webapp.security.model.response.BulkImportRowResultModel;
+import com.learningplatform.webapp.security.model.response.RequestOperationStatus;
+import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.shared.Roles;
+import com.learningplatform.webapp.security.shared.Utils;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports and exports users as NDJSON or CSV streams, with memory use independent of the number of rows.
+ * <p>
+ * Imports run in fixed-size chunks. Per chunk the duplicate check is a single query, passwords are hashed on a
+ * bounded shared pool, and users, role links and verification emails are inserted in JDBC batches in one
+ * transaction. A chunk that fails to commit reports all of its rows as failed; earlier chunks stay committed.
+ * <p>
+ * Exports read a scalar projection through a forward-only cursor, so rows never enter the persistence context
+ * and are written out as they arrive.
+ */
+@Service
+public class UserBulkServiceImpl implements UserBulkService {
+    private static final String[] CSV_COLUMNS = {"firstName", "lastName", "email", "password"};
+    private static final String[] EXPORT_COLUMNS = {"userId", "firstName", "lastName", "email"};
+    private static final String EXPORT_QUERY =
+            "select u.userId, u.firstName, u.lastName, u.email from UserEntity u order by u.id";
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final int MAX_EMAIL_LENGTH = 120;
+
+    private final Logger logger = LoggerFactory.getLogger(UserBulkServiceImpl.class);
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final Utils utils;
+    private final DelegatingPasswordEncoder passwordEncoder;
+    private final EmailOutbox emailOutbox;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final ExecutorService hashingExecutor;
+
+    public UserBulkServiceImpl(UserRepository userRepository, RoleRepository roleRepository, Utils utils,
+                               DelegatingPasswordEncoder passwordEncoder, EmailOutbox emailOutbox,
+                               EntityManager entityManager, PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper, AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.utils = utils;
+        this.passwordEncoder = passwordEncoder;
+        this.emailOutbox = emailOutbox;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.chunkSize = appProperties.getBulkImportChunkSize();
+        this.fetchSize = appProperties.getBulkExportFetchSize();
+        this.hashingExecutor = Executors.newFixedThreadPool(appProperties.getBulkImportHashingThreads(),
+                new CustomizableThreadFactory("bulk-import-hash-"));
+    }
+
+    @Override
+    public void importUsers(InputStream input, BulkFormat format, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        RoleEntity userRole = roleRepository.findByName(Roles.ROLE_USER.name());
+        Long roleId = userRole == null ? null : userRole.getId();
+
+        Map<String, Integer> columns = null;
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) continue;
+
+            if (format == BulkFormat.CSV && columns == null) {
+                columns = csvHeader(line);
+                if (columns == null) {
+                    write(writer, error(lineNumber, null, "CSV header must name the columns "
+                            + String.join(",", CSV_COLUMNS)));
+                    break;
+                }
+                continue;
+            }
+
+            chunk.add(parse(lineNumber, line, format, columns));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, roleId, writer);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, roleId, writer);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void exportUsers(BulkFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        if (format == BulkFormat.CSV) {
+            writer.write(String.join(",", EXPORT_COLUMNS));
+            writer.write('\n');
+        }
+
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (ScrollableResults rows = entityManager.unwrap(Session.class)
+                        .createQuery(EXPORT_QUERY, Object[].class)
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true)
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                    long count = 0;
+                    while (rows.next()) {
+                        writeExportRow(writer, format, rows.get());
+                        // Hand each fetched block to the client instead of buffering the whole export
+                        if (++count % fetchSize == 0) {
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeExportRow(Writer writer, BulkFormat format, Object[] row) throws IOException {
+        if (format == BulkFormat.CSV) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(csvField((String) row[i]));
+            }
+        } else {
+            UserDetailsResponseModel user = new UserDetailsResponseModel();
+            user.setUserId((String) row[0]);
+            user.setFirstName((String) row[1]);
+            user.setLastName((String) row[2]);
+            user.setEmail((String) row[3]);
+            writer.write(objectMapper.writeValueAsString(user));
+        }
+        writer.write('\n');
+    }
+
+    private void importChunk(List<Row> chunk, Long roleId, Writer writer) throws IOException {
+        Set<String> emails = new HashSet<>();
+        for (Row row : chunk) {
+            if (row.error == null) {
+                row.error = validate(row.user);
+            }
+            if (row.error == null && !emails.add(row.emailKey())) {
+                row.error = "Duplicate email in file";
+            }
+        }
+
+        if (!emails.isEmpty()) {
+            // The email column compares case-insensitively, so the lower-cased keys find the stored spellings too
+            Set<String> existing = new HashSet<>();
+            for (String email : userRepository.findEmailsIn(emails)) {
+                existing.add(emailKey(email));
+            }
+            for (Row row : chunk) {
+                if (row.error == null && existing.contains(row.emailKey())) {
+                    row.error = ErrorMessages.RECORD_ALREADY_EXISTS.getErrorMessage();
+                }
+            }
+        }
+
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.error == null) {
+                String password = row.user.getPassword();
+                row.hash = hashingExecutor.submit(() -> passwordEncoder.encode(password));
+                accepted.add(row);
+            }
+        }
+
+        for (Row row : accepted) {
+            row.entity = toEntity(row.user);
+        }
+
+        List<Row> hashed = new ArrayList<>(accepted.size());
+        for (Row row : accepted) {
+            try {
+                row.entity.setEncryptedPassword(row.hash.get());
+                hashed.add(row);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while hashing passwords");
+            } catch (ExecutionException e) {
+                row.error = String.valueOf(e.getCause().getMessage());
+            }
+        }
+
+        if (!hashed.isEmpty()) {
+            save(hashed, roleId);
+        }
+
+        for (Row row : chunk) {
+            write(writer, row.error == null ? success(row) : error(row.line, row.email(), row.error));
+        }
+        writer.flush();
+    }
+
+    private void save(List<Row> rows, Long roleId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<RoleEntity> roles = new HashSet<>();
+                if (roleId != null) {
+                    roles.add(entityManager.getReference(RoleEntity.class, roleId));
+                }
+
+                for (Row row : rows) {
+                    row.entity.setRoles(new HashSet<>(roles));
+                    userRepository.save(row.entity);
+                    emailOutbox.enqueueVerificationEmail(row.entity);
+                }
+
+                entityManager.flush();
+                // Keep the persistence context from growing with the upload when it outlives the transaction
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Bulk import chunk of {} users could not be saved", rows.size(), e);
+            for (Row row : rows) {
+                row.error = ErrorMessages.COULD_NOT_CREATE_RECORD.getErrorMessage();
+            }
+        }
+    }
+
+    private UserEntity toEntity(UserDetailsRequestModel user) {
+        UserEntity userEntity = new UserEntity();
+        String publicUserId = utils.generateUserId(30);
+
+        userEntity.setUserId(publicUserId);
+        userEntity.setFirstName(user.getFirstName());
+        userEntity.setLastName(user.getLastName());
+        // Trimmed as for the duplicate checks, so the account can be found by its address
+        userEntity.setEmail(user.getEmail().trim());
+        userEntity.setEmailVerificationToken(utils.generateEmailVerificationToken(publicUserId));
+        userEntity.setEmailVerificationStatus(false);
+
+        return userEntity;
+    }
+
+    private Row parse(long lineNumber, String line, BulkFormat format, Map<String, Integer> columns) {
+        Row row = new Row(lineNumber);
+        try {
+            if (format == BulkFormat.CSV) {
+                List<String> values = csvValues(line);
+                UserDetailsRequestModel user = new UserDetailsRequestModel();
+                user.setFirstName(csvValue(values, columns.get("firstName")));
+                user.setLastName(csvValue(values, columns.get("lastName")));
+                user.setEmail(csvValue(values, columns.get("email")));
+                user.setPassword(csvValue(values, columns.get("password")));
+                row.user = user;
+            } else {
+                row.user = objectMapper.readValue(line, UserDetailsRequestModel.class);
+                if (row.user == null) {
+                    row.error = "Malformed row: expected a JSON object";
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            row.error = "Malformed row: " + e.getMessage();
+        }
+        return row;
+    }
+
+    private static String validate(UserDetailsRequestModel user) {
+        if (isBlank(user.getFirstName()) || isBlank(user.getLastName())
+                || isBlank(user.getEmail()) || isBlank(user.getPassword())) {
+            return ErrorMessages.MISSING_REQUIRED_FIELD.getErrorMessage();
+        }
+        if (user.getFirstName().length() > MAX_NAME_LENGTH || user.getLastName().length() > MAX_NAME_LENGTH
+                || user.getEmail().trim().length() > MAX_EMAIL_LENGTH) {
+            return "Field exceeds maximum length";
+        }
+        return null;
+    }
+
+    /**
+     * Email as compared for duplicates; addresses differing only in case belong to the same user.
+     */
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static Map<String, Integer> csvHeader(String line) {
+        List<String> header = csvValues(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        return columns.keySet().containsAll(Arrays.asList(CSV_COLUMNS)) ? columns : null;
+    }
+
+    private static String csvValue(List<String> values, int column) {
+        return column < values.size() ? values.get(column) : null;
+    }
+
+    /**
+     * Splits one CSV record; fields may be quoted, with {@code ""} escaping a quote. Records spanning lines are
+     * not supported.
+     */
+    static List<String> csvValues(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static BulkImportRowResultModel success(Row row) {
+        BulkImportRowResultModel returnValue = new BulkImportRowResultModel();
+        returnValue.setRow(row.line);
+        returnValue.setEmail(row.email());
+        returnValue.setUserId(row.entity.getUserId());
+        returnValue.setOperationResult(RequestOperationStatus.SUCCESS.name());
+        return returnValue;
+    }
+
+    private static BulkImportRowResultModel error(long line, String email, String message) {
+        BulkImportRowResultModel returnValue = new BulkImportRowResultModel();
+        returnValue.setRow(line);
+        returnValue.setEmail(email);
+        returnValue.setOperationResult(RequestOperationStatus.ERROR.name());
+        returnValue.setMessage(message);
+        return returnValue;
+    }
+
+    private void write(Writer writer, BulkImportRowResultModel result) throws IOException {
+        writer.write(objectMapper.writeValueAsString(result));
+        writer.write('\n');
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    private static final class Row {
+        private final long line;
+        private UserDetailsRequestModel user;
+        private String error;
+        private Future<String> hash;
+        private UserEntity entity;
+
+        private Row(long line) {
+            this.line = line;
+        }
+
+        private String email() {
+            return user == null ? null : user.getEmail();
+        }
+
+        private String emailKey() {
+            return UserBulkServiceImpl.emailKey(user.getEmail());
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.learningplatform.webapp.security.logic.serviceImpl;
 
 import com.learningplatform.webapp.security.UserPrincipal;
-import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.datasource.ReadYourWritesWindow;
 import com.learningplatform.webapp.security.exceptions.ErrorMessages;
 import com.learningplatform.webapp.security.exceptions.UserServiceException;
 import com.learningplatform.webapp.security.logic.service.UserService;
-import com.learningplatform.webapp.security.mail.EmailSender;
+import com.learningplatform.webapp.security.mail.EmailOutbox;
 import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
+import com.learningplatform.webapp.security.model.mapper.UserMapper;
 import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
 import com.learningplatform.webapp.security.model.entity.RoleEntity;
 import com.learningplatform.webapp.security.model.entity.UserEntity;
@@ -14,18 +18,23 @@ import com.learningplatform.webapp.security.model.repository.PasswordResetTokenR
 import com.learningplatform.webapp.security.model.repository.RoleRepository;
 import com.learningplatform.webapp.security.model.repository.UserRepository;
 import com.learningplatform.webapp.security.shared.Utils;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
-import org.modelmapper.ModelMapper;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.mail.MessagingException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -33,38 +42,74 @@ import java.util.List;
 
 @Service
 public class UserServiceImpl implements UserService {
+    private static final String METRIC_NAME = "user.service";
+
     private final UserRepository userRepository;
     private final Utils utils;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
-    private final EmailSender emailSender;
+    private final PasswordEncoder passwordEncoder;
+    private final EmailOutbox emailOutbox;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
     private final RoleRepository roleRepository;
-    private final ModelMapper modelMapper = new ModelMapper();
+    private final PrincipalCache principalCache;
+    private final TokenVersionCache tokenVersionCache;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final TokenRevocationList tokenRevocationList;
+    private final TransactionTemplate transactionTemplate;
+    private final UserMapper userMapper = UserMapper.INSTANCE;
+    private final Timer createUserHashTimer;
+    private final Timer resetPasswordHashTimer;
 
     public UserServiceImpl(UserRepository userRepository, Utils utils,
-                           BCryptPasswordEncoder bCryptPasswordEncoder, EmailSender emailSender,
+                           PasswordEncoder passwordEncoder, EmailOutbox emailOutbox,
                            PasswordResetTokenRepository passwordResetTokenRepository,
-                           RoleRepository roleRepository) {
+                           RoleRepository roleRepository, PrincipalCache principalCache,
+                           TokenVersionCache tokenVersionCache, ReadYourWritesWindow readYourWritesWindow,
+                           TokenRevocationList tokenRevocationList, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.utils = utils;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
-        this.emailSender = emailSender;
+        this.passwordEncoder = passwordEncoder;
+        this.emailOutbox = emailOutbox;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
         this.roleRepository = roleRepository;
+        this.principalCache = principalCache;
+        this.tokenVersionCache = tokenVersionCache;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.tokenRevocationList = tokenRevocationList;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.createUserHashTimer = passwordHashTimer(meterRegistry, "createUser");
+        this.resetPasswordHashTimer = passwordHashTimer(meterRegistry, "resetPassword");
+    }
+
+    private static Timer passwordHashTimer(MeterRegistry meterRegistry, String method) {
+        return Timer.builder("security.password.hash")
+                .description("BCrypt hashing of a new password")
+                .tag("method", method)
+                .register(meterRegistry);
     }
 
+    /**
+     * Hashes the password before the transaction opens, so no connection is held for the hash; only the
+     * inserts run in it.
+     */
+    @Timed(METRIC_NAME)
     @Override
     public UserDto createUser(UserDto user) {
         if (userRepository.findByEmail(user.getEmail()) != null) throw new RuntimeException("Record already exists");
 
-        UserEntity userEntity = modelMapper.map(user, UserEntity.class);
+        UserEntity userEntity = userMapper.toUserEntity(user);
 
         String publicUserId = utils.generateUserId(30);
         userEntity.setUserId(publicUserId);
-        userEntity.setEncryptedPassword(bCryptPasswordEncoder.encode(user.getPassword()));
+        userEntity.setEncryptedPassword(
+                createUserHashTimer.record(() -> passwordEncoder.encode(user.getPassword())));
         userEntity.setEmailVerificationToken(utils.generateEmailVerificationToken(publicUserId));
         userEntity.setEmailVerificationStatus(false);
 
+        return transactionTemplate.execute(status -> insertUser(userEntity, user));
+    }
+
+    private UserDto insertUser(UserEntity userEntity, UserDto user) {
         // Set roles
         Collection<RoleEntity> roleEntities = new HashSet<>();
         if(user.getRoles() != null) {
@@ -78,21 +123,21 @@ public class UserServiceImpl implements UserService {
 
         userEntity.setRoles(roleEntities);
 
-        // Send verification email
-        try {
-            emailSender.sendVerificationEmail(userEntity, SecurityConstants.SITE_URL);
-        } catch (MessagingException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-
         UserEntity storedUserDetails = userRepository.save(userEntity);
+        readYourWritesWindow.recordWrite(storedUserDetails.getEmail());
+
+        // Queue verification email, sent once this transaction commits
+        emailOutbox.enqueueVerificationEmail(storedUserDetails);
 
-        return modelMapper.map(storedUserDetails, UserDto.class);
+        return userMapper.toUserDto(storedUserDetails);
     }
 
+    @Transactional(readOnly = true)
+    @Timed(METRIC_NAME)
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserEntity userEntity = userRepository.findByEmail(username);
+        UserEntity userEntity = ReadYourWritesWindow.readingAs(username,
+                () -> userRepository.findWithAuthoritiesByEmail(username));
 
         if (userEntity == null) {
             throw new UsernameNotFoundException(username);
@@ -101,24 +146,50 @@ public class UserServiceImpl implements UserService {
         return new UserPrincipal(userEntity);
     }
 
+    /**
+     * Called by the authentication provider after a successful login when the stored hash is below the current
+     * policy (legacy format or lower BCrypt strength). The password itself is unchanged, so issued tokens stay
+     * valid.
+     */
+    @Transactional
+    @Timed(METRIC_NAME)
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserEntity userEntity = userRepository.findWithAuthoritiesByEmail(user.getUsername());
+
+        if (userEntity == null) throw new UsernameNotFoundException(user.getUsername());
+
+        userEntity.setEncryptedPassword(newPassword);
+        UserEntity savedUserEntity = userRepository.save(userEntity);
+        principalCache.evict(savedUserEntity.getEmail());
+
+        return new UserPrincipal(savedUserEntity);
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(METRIC_NAME)
     @Override
     public UserDto getUser(String email) {
-        UserEntity userEntity = userRepository.findByEmail(email);
+        UserEntity userEntity = userRepository.findWithRolesByEmail(email);
 
         if (userEntity == null) throw new UsernameNotFoundException(email);
 
-        return modelMapper.map(userEntity, UserDto.class);
+        return userMapper.toUserDto(userEntity);
     }
 
+    @Transactional(readOnly = true)
+    @Timed(METRIC_NAME)
     @Override
     public UserDto getUserByUserId(String userId) {
         UserEntity userEntity = userRepository.findByUserId(userId);
 
         if (userEntity == null) throw new UsernameNotFoundException("User with ID: " + userId + " not found");
 
-        return modelMapper.map(userEntity, UserDto.class);
+        return userMapper.toUserDto(userEntity);
     }
 
+    @Transactional
+    @Timed(METRIC_NAME)
     @Override
     public UserDto updateUser(String userId, UserDto user) {
         UserEntity userEntity = userRepository.findByUserId(userId);
@@ -129,10 +200,14 @@ public class UserServiceImpl implements UserService {
         userEntity.setLastName(user.getLastName());
 
         UserEntity updatedUserDetails = userRepository.save(userEntity);
+        principalCache.evict(updatedUserDetails.getEmail());
+        readYourWritesWindow.recordWrite(updatedUserDetails.getEmail());
 
-        return modelMapper.map(updatedUserDetails, UserDto.class);
+        return userMapper.toUserDto(updatedUserDetails);
     }
 
+    @Transactional
+    @Timed(METRIC_NAME)
     @Override
     public void deleteUser(String userId) {
         UserEntity userEntity = userRepository.findByUserId(userId);
@@ -141,8 +216,16 @@ public class UserServiceImpl implements UserService {
             throw new UserServiceException(ErrorMessages.NO_RECORD_FOUND.getErrorMessage());
         }
         userRepository.delete(userEntity);
+        principalCache.evict(userEntity.getEmail());
+        tokenVersionCache.evict(userEntity.getUserId());
+        readYourWritesWindow.recordWrite(userEntity.getEmail());
     }
 
+    /**
+     * Transactional so the roles of the whole page are loaded in one batch while mapping.
+     */
+    @Transactional(readOnly = true)
+    @Timed(METRIC_NAME)
     @Override
     public List<UserDto> getUsers(int page, int limit) {
         List<UserDto> returnValue = new ArrayList<>();
@@ -153,12 +236,43 @@ public class UserServiceImpl implements UserService {
         List<UserEntity> users = usersPage.getContent();
 
         for (UserEntity userEntity : users) {
-            returnValue.add(modelMapper.map(userEntity, UserDto.class));
+            returnValue.add(userMapper.toUserDto(userEntity));
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Keyset pagination: seeks past the id encoded in {@code cursor} instead of skipping rows with an offset, and
+     * reads one extra row to learn whether there is a next page instead of counting. An empty cursor starts at
+     * the beginning, a {@code limit} out of range is clamped. Transactional for the same reason as the page listing.
+     */
+    @Transactional(readOnly = true)
+    @Timed(METRIC_NAME)
+    @Override
+    public UserPageDto getUsers(String cursor, int requestedLimit) {
+        long afterId = Utils.decodeCursor(cursor);
+        int limit = Utils.cursorLimit(requestedLimit);
+
+        List<UserEntity> users = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit + 1));
+        boolean hasNext = users.size() > limit;
+        if (hasNext) {
+            users = users.subList(0, limit);
+        }
+
+        List<UserDto> userDtos = new ArrayList<>(users.size());
+        for (UserEntity userEntity : users) {
+            userDtos.add(userMapper.toUserDto(userEntity));
         }
 
+        UserPageDto returnValue = new UserPageDto();
+        returnValue.setUsers(userDtos);
+        returnValue.setNext(hasNext ? Utils.encodeCursor(users.get(users.size() - 1).getId()) : null);
         return returnValue;
     }
 
+    @Transactional
+    @Timed(METRIC_NAME)
     @Override
     public boolean verifyEmailToken(String token){
         boolean returnValue = false;
@@ -169,16 +283,13 @@ public class UserServiceImpl implements UserService {
 
         if (userEntity != null) {
             try{
-                hasTokenExpired = Utils.hasTokenExpired(token);
+                hasTokenExpired = utils.hasTokenExpired(token);
             }catch (ExpiredJwtException e){
                 userEntity.setEmailVerificationToken(utils.generateEmailVerificationToken(userEntity.getUserId()));
                 userEntity.setEmailVerificationStatus(false);
-                try {
-                    emailSender.sendVerificationEmail(userEntity, SecurityConstants.SITE_URL);
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
                 userRepository.save(userEntity);
+                emailOutbox.enqueueVerificationEmail(userEntity);
+                principalCache.evict(userEntity.getEmail());
                 return false;
             }
 
@@ -186,6 +297,8 @@ public class UserServiceImpl implements UserService {
                 userEntity.setEmailVerificationToken(null);
                 userEntity.setEmailVerificationStatus(true);
                 userRepository.save(userEntity);
+                principalCache.evict(userEntity.getEmail());
+                readYourWritesWindow.recordWrite(userEntity.getEmail());
                 returnValue = true;
             }
         }
@@ -193,10 +306,10 @@ public class UserServiceImpl implements UserService {
         return returnValue;
     }
 
+    @Transactional
+    @Timed(METRIC_NAME)
     @Override
     public boolean requestPasswordReset(String email) {
-        boolean returnValue = false;
-
         UserEntity userEntity = userRepository.findByEmail(email);
 
         if (userEntity == null) {
@@ -204,48 +317,57 @@ public class UserServiceImpl implements UserService {
         }
 
         String token = utils.generatePasswordResetToken(userEntity.getUserId());
-        PasswordResetTokenEntity passwordResetTokenEntity = new PasswordResetTokenEntity();
+        PasswordResetTokenEntity passwordResetTokenEntity =
+                passwordResetTokenRepository.findByUserEntity_Email(userEntity.getEmail());
 
-        if (userEntity.getPasswordResetTokenEntity() != null) {
-            passwordResetTokenEntity = passwordResetTokenRepository.findByUserEntity_Email(userEntity.getEmail());
+        if (passwordResetTokenEntity != null) {
             passwordResetTokenEntity.setToken(token);
         } else {
+            passwordResetTokenEntity = new PasswordResetTokenEntity();
             passwordResetTokenEntity.setToken(token);
             passwordResetTokenEntity.setUserEntity(userEntity);
         }
 
-        try {
-            passwordResetTokenRepository.save(passwordResetTokenEntity);
-            emailSender.sendPasswordResetEmail(userEntity, passwordResetTokenEntity);
-            returnValue = true;
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        passwordResetTokenRepository.save(passwordResetTokenEntity);
+        emailOutbox.enqueuePasswordResetEmail(userEntity, token);
 
-        return returnValue;
+        return true;
     }
 
+    /**
+     * Hashes the password before the transaction opens, like {@link #createUser}. The token's signature and expiry
+     * are checked first, so only tokens this application issued cost a hash.
+     */
+    @Timed(METRIC_NAME)
     @Override
     public boolean resetPassword(String token, String password) {
-        boolean returnValue = false;
-
-        if (Utils.hasTokenExpired(token)) {
+        if (utils.hasTokenExpired(token)) {
             return false;
         }
 
+        //Prepare new password
+        String encodedPassword = resetPasswordHashTimer.record(() -> passwordEncoder.encode(password));
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> storePassword(token, encodedPassword)));
+    }
+
+    private boolean storePassword(String token, String encodedPassword) {
+        boolean returnValue = false;
+
         PasswordResetTokenEntity passwordResetTokenEntity = passwordResetTokenRepository.findByToken(token);
 
         if (passwordResetTokenEntity == null) {
             return false;
         }
 
-        //Prepare new password
-        String encodedPassword = bCryptPasswordEncoder.encode(password);
-
         //Update User password in database
         UserEntity userEntity = passwordResetTokenEntity.getUserEntity();
         userEntity.setEncryptedPassword(encodedPassword);
+        revokeIssuedTokens(userEntity);
         UserEntity savedUserEntity = userRepository.save(userEntity);
+        principalCache.evict(savedUserEntity.getEmail());
+        tokenVersionCache.evict(savedUserEntity.getUserId());
+        readYourWritesWindow.recordWrite(savedUserEntity.getEmail());
 
         // Verify if password was saved successfully
         if (savedUserEntity.getEncryptedPassword().equalsIgnoreCase(encodedPassword)) {
@@ -256,4 +378,22 @@ public class UserServiceImpl implements UserService {
 
         return returnValue;
     }
+
+    /**
+     * Logs the token of {@code claims} out: it is rejected from now on, while the user's other tokens stay valid.
+     */
+    @Transactional
+    @Timed(METRIC_NAME)
+    @Override
+    public boolean revokeToken(Claims claims) {
+        return tokenRevocationList.revoke(claims);
+    }
+
+    /**
+     * Invalidates every self-contained token issued so far. Must be called on password and role changes.
+     */
+    private void revokeIssuedTokens(UserEntity userEntity) {
+        long tokenVersion = userEntity.getTokenVersion() == null ? 0L : userEntity.getTokenVersion();
+        userEntity.setTokenVersion(tokenVersion + 1);
+    }
 }
@@ -0,0 +1,49 @@
+package com.learningplatform.webapp.security.mail;
+
+import com.learningplatform.webapp.security.model.entity.EmailOutboxEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.EmailOutboxRepository;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Records outgoing emails in the {@code email_outbox} table. Callers run inside the transaction that changes
+ * the user, so the email is stored if and only if that change commits; {@link EmailOutboxDispatcher} sends it,
+ * rendered in the locale of the request that caused it.
+ */
+@Component
+public class EmailOutbox {
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    public EmailOutbox(EmailOutboxRepository emailOutboxRepository) {
+        this.emailOutboxRepository = emailOutboxRepository;
+    }
+
+    public void enqueueVerificationEmail(UserEntity user) {
+        enqueue(EmailType.VERIFICATION, user, user.getEmailVerificationToken());
+    }
+
+    public void enqueuePasswordResetEmail(UserEntity user, String token) {
+        enqueue(EmailType.PASSWORD_RESET, user, token);
+    }
+
+    private void enqueue(EmailType type, UserEntity user, String token) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        EmailOutboxEntity email = new EmailOutboxEntity();
+        email.setType(type);
+        email.setRecipient(user.getEmail());
+        email.setRecipientName(user.getFirstName() + " " + user.getLastName());
+        email.setToken(token);
+        email.setLocale(LocaleContextHolder.getLocale().toLanguageTag());
+        email.setStatus(EmailStatus.PENDING);
+        email.setAttempts(0);
+        email.setNextAttemptAt(now);
+        email.setCreatedAt(now);
+
+        emailOutboxRepository.save(email);
+    }
+}
@@ -0,0 +1,157 @@
+package com.learningplatform.webapp.security.mail;
+
+import com.learningplatform.webapp.security.concurrent.VirtualThreads;
+import com.learningplatform.webapp.security.model.entity.EmailOutboxEntity;
+import com.learningplatform.webapp.security.model.repository.EmailOutboxRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the outbox for due emails, leases them and sends them on a bounded pool. Failed sends are retried with
+ * exponential backoff; after {@code emailOutbox.maxAttempts} the email is dead-lettered. Sent and dead-lettered
+ * emails, tokens included, are deleted once they are older than {@code emailOutbox.retentionHours}.
+ */
+@Component
+public class EmailOutboxDispatcher {
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final List<EmailStatus> FINISHED = Arrays.asList(EmailStatus.SENT, EmailStatus.DEAD);
+
+    private final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailSender emailSender;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository, EmailSender emailSender,
+                                 AppProperties appProperties) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailSender = emailSender;
+        this.batchSize = appProperties.getEmailOutboxBatchSize();
+        this.maxAttempts = appProperties.getEmailOutboxMaxAttempts();
+        this.lease = Duration.ofMillis(appProperties.getEmailOutboxLeaseMs());
+        this.initialBackoff = Duration.ofMillis(appProperties.getEmailOutboxInitialBackoffMs());
+        this.maxBackoff = Duration.ofMillis(appProperties.getEmailOutboxMaxBackoffMs());
+        this.retention = Duration.ofHours(appProperties.getEmailOutboxRetentionHours());
+        // Still a fixed pool with virtual threads: emailOutbox.concurrency caps the parallel SMTP sessions
+        ThreadFactory threadFactory = appProperties.isVirtualThreadsEnabled()
+                ? VirtualThreads.threadFactory("email-outbox-")
+                : new CustomizableThreadFactory("email-outbox-");
+        this.executor = Executors.newFixedThreadPool(appProperties.getEmailOutboxConcurrency(), threadFactory);
+    }
+
+    /**
+     * Leases the due emails and hands them to the pool without waiting for the sends, so the scheduler thread that
+     * the other {@code @Scheduled} tasks share is not held up by SMTP. No more than {@code emailOutbox.batchSize}
+     * emails are leased at a time, so none sits in the queue until its lease runs out.
+     */
+    @Scheduled(fixedDelayString = "${emailOutbox.pollIntervalMs:1000}")
+    public void dispatch() {
+        int capacity = batchSize - inFlight.get();
+        if (capacity <= 0) return;
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<EmailOutboxEntity> due = emailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                EmailStatus.PENDING, now, PageRequest.of(0, capacity));
+
+        for (EmailOutboxEntity email : due) {
+            Instant leaseUntil = now.plus(lease);
+            if (emailOutboxRepository.claim(email.getId(), EmailStatus.PENDING, email.getNextAttemptAt(), leaseUntil) == 1) {
+                email.setNextAttemptAt(leaseUntil);
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        send(email);
+                    } catch (RuntimeException e) {
+                        logger.error("Email outbox send task failed", e);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * A finished email's next attempt time is the end of its last lease, so it is kept for the retention after that.
+     */
+    @Scheduled(fixedDelayString = "${emailOutbox.purgeIntervalMs:3600000}")
+    public void purge() {
+        int deleted = emailOutboxRepository.deleteFinished(FINISHED, Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Purged {} sent or dead-lettered emails from the outbox", deleted);
+        }
+    }
+
+    private void send(EmailOutboxEntity email) {
+        try {
+            switch (email.getType()) {
+                case VERIFICATION:
+                    emailSender.sendVerificationEmail(email.getRecipient(), email.getRecipientName(), email.getToken(),
+                            locale(email));
+                    break;
+                case PASSWORD_RESET:
+                    emailSender.sendPasswordResetEmail(email.getRecipient(), email.getRecipientName(), email.getToken(),
+                            locale(email));
+                    break;
+            }
+            email.setStatus(EmailStatus.SENT);
+            email.setLastError(null);
+        } catch (Exception e) {
+            recordFailure(email, e);
+        }
+        email.setAttempts(email.getAttempts() + 1);
+        emailOutboxRepository.save(email);
+    }
+
+    private static Locale locale(EmailOutboxEntity email) {
+        return email.getLocale() == null ? Locale.ROOT : Locale.forLanguageTag(email.getLocale());
+    }
+
+    private void recordFailure(EmailOutboxEntity email, Exception e) {
+        int attempts = email.getAttempts() + 1;
+        String error = String.valueOf(e.getMessage());
+        email.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+
+        if (attempts >= maxAttempts) {
+            logger.error("Giving up on email {} to {} after {} attempts", email.getId(), email.getRecipient(), attempts, e);
+            email.setStatus(EmailStatus.DEAD);
+            return;
+        }
+
+        logger.warn("Sending email {} failed (attempt {}), retrying", email.getId(), attempts, e);
+        email.setNextAttemptAt(Instant.now().truncatedTo(ChronoUnit.MILLIS).plus(backoff(attempts)));
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
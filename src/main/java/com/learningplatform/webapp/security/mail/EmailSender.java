@@ -1,80 +1,75 @@
 package com.learningplatform.webapp.security.mail;
 
 import com.learningplatform.webapp.security.constants.SecurityConstants;
-import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
-import com.learningplatform.webapp.security.model.entity.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 public class EmailSender {
     private final JavaMailSender mailSender;
+    private final EmailTemplates emailTemplates;
+    private final InternetAddress fromAddress;
+    private final MeterRegistry meterRegistry;
 
-    public EmailSender(JavaMailSender mailSender) {
+    public EmailSender(JavaMailSender mailSender, EmailTemplates emailTemplates, MeterRegistry meterRegistry)
+            throws UnsupportedEncodingException {
         this.mailSender = mailSender;
+        this.emailTemplates = emailTemplates;
+        this.fromAddress = new InternetAddress("hubert1234.94@gmail.com", "Hubex");
+        this.meterRegistry = meterRegistry;
     }
 
-    public void sendVerificationEmail(UserEntity user, String siteURL)
-            throws MessagingException, UnsupportedEncodingException {
-
-        String toAddress = user.getEmail();
-        String fromAddress = "hubert1234.94@gmail.com";
-        String senderName = "Hubex";
-        String subject = "Please verify your registration";
-        String content = "Dear [[name]],<br>"
-                + "Please click the link below to verify your registration:<br>"
-                + "<h3><a href=\"[[URL]]\" target=\"_self\">VERIFY</a></h3>"
-                + "Thank you,<br>"
-                + "Hubex best corpo";
-
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message);
-
-        helper.setFrom(fromAddress, senderName);
-        helper.setTo(toAddress);
-        helper.setSubject(subject);
-
-        content = content.replace("[[name]]", user.getFirstName() + " " + user.getLastName());
-        String verifyURL = siteURL + "users/email-verification?token=" + user.getEmailVerificationToken();
-
-        content = content.replace("[[URL]]", verifyURL);
-
-        helper.setText(content, true);
+    public void sendVerificationEmail(String toAddress, String name, String token, Locale locale)
+            throws MessagingException {
+        String verifyURL = SecurityConstants.SITE_URL + "users/email-verification?token=" + token;
+        send(EmailTemplates.VERIFICATION, locale, toAddress, name, verifyURL);
+    }
 
-        mailSender.send(message);
+    public void sendPasswordResetEmail(String toAddress, String name, String token, Locale locale)
+            throws MessagingException {
+        String resetURL = SecurityConstants.FRONTEND_RESET_PASSWORD_SITE_URL + "?token=" + token;
+        send(EmailTemplates.PASSWORD_RESET, locale, toAddress, name, resetURL);
     }
 
-    public void sendPasswordResetEmail(UserEntity user, PasswordResetTokenEntity passwordResetTokenEntity)
-            throws MessagingException, UnsupportedEncodingException {
+    private void send(String templateName, Locale locale, String toAddress, String name, String url)
+            throws MessagingException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            send(emailTemplates.get(templateName, locale), toAddress, name, url);
+            outcome = "success";
+        } finally {
+            sample.stop(Timer.builder("mail.send")
+                    .description("Rendering and sending one email")
+                    .tag("type", templateName)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
 
-        String toAddress = user.getEmail();
-        String fromAddress = "hubert1234.94@gmail.com";
-        String senderName = "Hubex";
-        String subject = "Password reset";
-        String content = "Dear [[name]],<br>"
-                + "Please click the link below to reset your password:<br>"
-                + "<h3><a href=\"[[URL]]\" target=\"_self\">VERIFY</a></h3>"
-                + "Thank you,<br>"
-                + "Hubex best corpo";
+    private void send(EmailTemplate template, String toAddress, String name, String url) throws MessagingException {
+        Map<String, String> values = new HashMap<>(4);
+        values.put("name", name);
+        values.put("URL", url);
 
         MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message);
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
 
-        helper.setFrom(fromAddress, senderName);
+        helper.setFrom(fromAddress);
         helper.setTo(toAddress);
-        helper.setSubject(subject);
-
-        content = content.replace("[[name]]", user.getFirstName() + " " + user.getLastName());
-        String verifyURL = SecurityConstants.FRONTEND_RESET_PASSWORD_SITE_URL + "?token=" + passwordResetTokenEntity.getToken();
-
-        content = content.replace("[[URL]]", verifyURL);
-
-        helper.setText(content, true);
+        helper.setSubject(template.getSubject());
+        helper.setText(template.render(values), true);
 
         mailSender.send(message);
     }
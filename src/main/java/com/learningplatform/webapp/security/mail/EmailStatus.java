@@ -0,0 +1,5 @@
+package com.learningplatform.webapp.security.mail;
+
+public enum EmailStatus {
+    PENDING, SENT, DEAD
+}
@@ -0,0 +1,73 @@
+package com.learningplatform.webapp.security.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email body compiled once into alternating literal and {@code [[placeholder]]} segments, so rendering is a
+ * single pass into a pre-sized buffer instead of a chain of {@code String.replace} calls.
+ */
+public final class EmailTemplate {
+    private static final String OPEN = "[[";
+    private static final String CLOSE = "]]";
+
+    private final String subject;
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private EmailTemplate(String subject, String[] literals, String[] placeholders) {
+        this.subject = subject;
+        this.literals = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static EmailTemplate compile(String subject, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int position = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, position);
+            int close = open < 0 ? -1 : source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                literals.add(source.substring(position));
+                break;
+            }
+            literals.add(source.substring(position, open));
+            placeholders.add(source.substring(open + OPEN.length(), close));
+            position = close + CLOSE.length();
+        }
+
+        return new EmailTemplate(subject, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Renders the body. Placeholders without a value are rendered empty.
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder returnValue = new StringBuilder(literalLength + 64 * placeholders.length);
+
+        for (int i = 0; i < placeholders.length; i++) {
+            returnValue.append(literals[i]);
+            String value = values.get(placeholders[i]);
+            if (value != null) {
+                returnValue.append(value);
+            }
+        }
+        returnValue.append(literals[literals.length - 1]);
+
+        return returnValue.toString();
+    }
+}
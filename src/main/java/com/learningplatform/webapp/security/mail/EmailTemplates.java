@@ -0,0 +1,53 @@
+package com.learningplatform.webapp.security.mail;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads {@code mail/<name>[_<language>].html} bodies and their subjects from {@code mail/subjects*.properties},
+ * compiling each (name, language) pair once. Unknown languages fall back to the default template.
+ */
+@Component
+public class EmailTemplates {
+    public static final String VERIFICATION = "verification";
+    public static final String PASSWORD_RESET = "password-reset";
+
+    private static final String LOCATION = "mail/";
+    private static final String SUBJECTS = "mail/subjects";
+
+    private final Map<String, EmailTemplate> templates = new ConcurrentHashMap<>();
+
+    public EmailTemplate get(String name, Locale locale) {
+        String language = locale == null ? "" : locale.getLanguage();
+        return templates.computeIfAbsent(name + '_' + language, key -> load(name, language));
+    }
+
+    private EmailTemplate load(String name, String language) {
+        ClassPathResource resource = new ClassPathResource(LOCATION + name + "_" + language + ".html");
+        Locale locale = Locale.forLanguageTag(language);
+
+        if (language.isEmpty() || !resource.exists()) {
+            resource = new ClassPathResource(LOCATION + name + ".html");
+            locale = Locale.ROOT;
+        }
+
+        String subject = ResourceBundle.getBundle(SUBJECTS, locale, ResourceBundle.Control.getNoFallbackControl(
+                ResourceBundle.Control.FORMAT_PROPERTIES)).getString(name);
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            String source = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8).trim();
+            return EmailTemplate.compile(subject, source);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load email template " + resource.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.learningplatform.webapp.security.mail;
+
+public enum EmailType {
+    VERIFICATION, PASSWORD_RESET
+}
@@ -0,0 +1,45 @@
+package com.learningplatform.webapp.security.mail;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Properties;
+
+/**
+ * Replaces Boot's per-send {@code JavaMailSenderImpl} with {@link PooledJavaMailSender}, configured from the
+ * usual {@code spring.mail.*} properties plus {@code mailPool.*}. The {@code loadtest} profile brings its own
+ * non-sending {@code mailSender}.
+ */
+@Configuration
+@Profile("!loadtest")
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfiguration {
+
+    @Bean
+    public PooledJavaMailSender mailSender(MailProperties mailProperties, AppProperties appProperties) {
+        PooledJavaMailSender mailSender = new PooledJavaMailSender(appProperties.getMailPoolMaxSize(),
+                appProperties.getMailPoolIdleTimeoutMs(), appProperties.getMailPoolValidationIntervalMs(),
+                appProperties.getMailPoolBorrowTimeoutMs());
+
+        mailSender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            mailSender.setPort(mailProperties.getPort());
+        }
+        mailSender.setUsername(mailProperties.getUsername());
+        mailSender.setPassword(mailProperties.getPassword());
+        mailSender.setProtocol(mailProperties.getProtocol());
+        if (mailProperties.getDefaultEncoding() != null) {
+            mailSender.setDefaultEncoding(mailProperties.getDefaultEncoding().name());
+        }
+
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(mailProperties.getProperties());
+        mailSender.setJavaMailProperties(javaMailProperties);
+
+        return mailSender;
+    }
+}
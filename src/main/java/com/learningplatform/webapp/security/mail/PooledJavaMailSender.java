@@ -0,0 +1,183 @@
+package com.learningplatform.webapp.security.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl} that keeps SMTP connections open between sends instead of paying for a new
+ * connect, STARTTLS and AUTH round trip per message.
+ * <p>
+ * At most {@code maxSize} connections are in use at once; callers beyond that wait up to {@code borrowTimeoutMs}.
+ * Idle connections are reused most-recently-used first, so the pool shrinks naturally once load drops, and are
+ * closed after {@code idleTimeoutMs}. A connection that sat idle longer than {@code validationIntervalMs} is
+ * checked with a {@code NOOP} before reuse; one that failed a send is closed rather than returned.
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+    private final Logger logger = LoggerFactory.getLogger(PooledJavaMailSender.class);
+    private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long borrowTimeoutMillis;
+    private final ScheduledExecutorService evictor;
+
+    public PooledJavaMailSender(int maxSize, long idleTimeoutMillis, long validationIntervalMillis,
+                                long borrowTimeoutMillis) {
+        this.permits = new Semaphore(maxSize, true);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("smtp-pool-evictor-");
+        threadFactory.setDaemon(true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long period = Math.max(1, idleTimeoutMillis / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        acquirePermit();
+        PooledTransport transport = null;
+        try {
+            try {
+                transport = borrow();
+            } catch (AuthenticationFailedException e) {
+                throw new MailAuthenticationException(e);
+            } catch (Exception e) {
+                for (int i = 0; i < mimeMessages.length; i++) {
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], e);
+                }
+                throw new MailSendException("Mail server connection failed", e, failedMessages);
+            }
+
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    if (mimeMessage.getSentDate() == null) {
+                        mimeMessage.setSentDate(new Date());
+                    }
+                    String messageId = mimeMessage.getMessageID();
+                    mimeMessage.saveChanges();
+                    if (messageId != null) {
+                        mimeMessage.setHeader("Message-ID", messageId);
+                    }
+                    Address[] addresses = mimeMessage.getAllRecipients();
+                    transport.transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                } catch (Exception e) {
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessage, e);
+                }
+            }
+        } finally {
+            if (transport != null) {
+                if (failedMessages.isEmpty()) {
+                    release(transport);
+                } else {
+                    close(transport);
+                }
+            }
+            permits.release();
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Number of open connections currently waiting in the pool.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void destroy() {
+        evictor.shutdownNow();
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            close(transport);
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", e);
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - transport.lastUsed;
+            if (idleFor < idleTimeoutMillis
+                    && (idleFor < validationIntervalMillis || transport.transport.isConnected())) {
+                return transport;
+            }
+            close(transport);
+        }
+        return new PooledTransport(connectTransport());
+    }
+
+    private void release(PooledTransport transport) {
+        transport.lastUsed = System.currentTimeMillis();
+        idle.offerFirst(transport);
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledTransport> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext()) {
+            PooledTransport transport = oldestFirst.next();
+            if (now - transport.lastUsed >= idleTimeoutMillis && idle.removeLastOccurrence(transport)) {
+                close(transport);
+            }
+        }
+    }
+
+    private void close(PooledTransport transport) {
+        try {
+            transport.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP connection", e);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.learningplatform.webapp.security.model.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+public class UserPageDto implements Serializable {
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private static final long serialVersionUID = 2519186214396432457L;
+    private List<UserDto> users;
+    private String next;
+}
@@ -1,9 +1,12 @@
 package com.learningplatform.webapp.security.model.entity;
 
+import com.learningplatform.webapp.security.model.id.PooledLoTableGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
@@ -12,6 +15,7 @@ import java.util.Collection;
 
 @Entity
 @Table(name = "authorities")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,8 +29,8 @@ public class AuthorityEntity implements Serializable {
     private static final long serialVersionUID = 5237410882817898981L;
 
     @Id
-    @GeneratedValue(generator = "inc")
-    @GenericGenerator(name = "inc", strategy = "increment")
+    @GeneratedValue(generator = PooledLoTableGenerator.NAME)
+    @GenericGenerator(name = PooledLoTableGenerator.NAME, strategy = PooledLoTableGenerator.STRATEGY)
     private Long id;
 
     @Column(nullable = false, length = 20)
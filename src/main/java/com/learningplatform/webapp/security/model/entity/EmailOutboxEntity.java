@@ -0,0 +1,51 @@
+package com.learningplatform.webapp.security.model.entity;
+
+import com.learningplatform.webapp.security.mail.EmailStatus;
+import com.learningplatform.webapp.security.mail.EmailType;
+import com.learningplatform.webapp.security.model.id.PooledLoTableGenerator;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity
+@Table(name = "email_outbox")
+@Getter
+@Setter
+public class EmailOutboxEntity implements Serializable {
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private static final long serialVersionUID = 3310782294551307129L;
+
+    @Id
+    @GeneratedValue(generator = PooledLoTableGenerator.NAME)
+    @GenericGenerator(name = PooledLoTableGenerator.NAME, strategy = PooledLoTableGenerator.STRATEGY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private EmailType type;
+    @Column(nullable = false, length = 120)
+    private String recipient;
+    @Column(nullable = false, length = 101)
+    private String recipientName;
+    @Column(nullable = false, length = 512)
+    private String token;
+    @Column(length = 35)
+    private String locale;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EmailStatus status;
+    @Column(nullable = false)
+    private int attempts;
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+    @Column(length = 500)
+    private String lastError;
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -1,5 +1,6 @@
 package com.learningplatform.webapp.security.model.entity;
 
+import com.learningplatform.webapp.security.model.id.PooledLoTableGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -18,11 +19,11 @@ public class PasswordResetTokenEntity implements Serializable {
     private static final long serialVersionUID = -2904254733662477411L;
 
     @Id
-    @GeneratedValue(generator = "inc")
-    @GenericGenerator(name = "inc", strategy = "increment")
+    @GeneratedValue(generator = PooledLoTableGenerator.NAME)
+    @GenericGenerator(name = PooledLoTableGenerator.NAME, strategy = PooledLoTableGenerator.STRATEGY)
     private long id;
     private String token;
-    @OneToOne()
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity userEntity;
 
@@ -1,17 +1,22 @@
 package com.learningplatform.webapp.security.model.entity;
 
+import com.learningplatform.webapp.security.model.id.PooledLoTableGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Set;
 
 @Entity
 @Table(name = "roles")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,8 +30,8 @@ public class RoleEntity implements Serializable {
     private static final long serialVersionUID = 8969720032605789160L;
 
     @Id
-    @GeneratedValue(generator = "inc")
-    @GenericGenerator(name = "inc", strategy = "increment")
+    @GeneratedValue(generator = PooledLoTableGenerator.NAME)
+    @GenericGenerator(name = PooledLoTableGenerator.NAME, strategy = PooledLoTableGenerator.STRATEGY)
     private Long id;
 
     @Column(nullable = false, length = 20)
@@ -35,9 +40,11 @@ public class RoleEntity implements Serializable {
     @ManyToMany(mappedBy = "roles")
     private Collection<UserEntity> users;
 
-    @ManyToMany(cascade = {CascadeType.PERSIST}, fetch = FetchType.EAGER)
+    // A set rather than a bag, so it can be fetched together with UserEntity.roles
+    @ManyToMany(cascade = {CascadeType.PERSIST})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "roles_authorities",
             joinColumns = @JoinColumn(name = "roles_id", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "authorities_id",referencedColumnName = "id"))
-    private Collection<AuthorityEntity> authorities;
+    private Set<AuthorityEntity> authorities;
 }
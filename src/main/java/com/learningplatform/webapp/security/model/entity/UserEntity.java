@@ -1,26 +1,41 @@
 package com.learningplatform.webapp.security.model.entity;
 
+import com.learningplatform.webapp.security.model.id.PooledLoTableGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Collection;
 
+/**
+ * Associations are lazy; each use case names what it needs through {@link #AUTHENTICATION_GRAPH} or
+ * {@link #PROFILE_GRAPH} on the repository method, and listings batch-load the roles of a page.
+ */
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = UserEntity.AUTHENTICATION_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "roles", subgraph = "roles"),
+        subgraphs = @NamedSubgraph(name = "roles", attributeNodes = @NamedAttributeNode("authorities")))
+@NamedEntityGraph(name = UserEntity.PROFILE_GRAPH, attributeNodes = @NamedAttributeNode("roles"))
 @Getter
 @Setter
 public class UserEntity implements Serializable {
+    /** Roles and their authorities, everything a {@code UserPrincipal} is built from. */
+    public static final String AUTHENTICATION_GRAPH = "UserEntity.authentication";
+    /** Roles, everything a {@code UserDto} is built from. */
+    public static final String PROFILE_GRAPH = "UserEntity.profile";
+
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
     private static final long serialVersionUID = -4890117004486260062L;
 
     @Id
-    @GeneratedValue(generator = "inc")
-    @GenericGenerator(name = "inc", strategy = "increment")
+    @GeneratedValue(generator = PooledLoTableGenerator.NAME)
+    @GenericGenerator(name = PooledLoTableGenerator.NAME, strategy = PooledLoTableGenerator.STRATEGY)
     private Long id;
 
     @Column(nullable = false)
@@ -36,11 +51,11 @@ public class UserEntity implements Serializable {
     private String emailVerificationToken;
     @Column(nullable = false)
     private Boolean emailVerificationStatus = false;
+    @Column(nullable = false)
+    private Long tokenVersion = 0L;
 
-    @OneToOne(mappedBy = "userEntity")
-    private PasswordResetTokenEntity passwordResetTokenEntity;
-
-    @ManyToMany(cascade = {CascadeType.PERSIST}, fetch = FetchType.EAGER)
+    @ManyToMany(cascade = {CascadeType.PERSIST})
+    @BatchSize(size = 50)
     @JoinTable(name = "users_roles",
     joinColumns = @JoinColumn(name = "users_id", referencedColumnName = "id"),
     inverseJoinColumns = @JoinColumn(name = "roles_id",referencedColumnName = "id"))
@@ -0,0 +1,40 @@
+package com.learningplatform.webapp.security.model.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Table-backed id generator shared by all entities. Each entity table gets its own row in {@code id_generators},
+ * holding the last id handed out for it. The row is advanced under a row lock in a separate transaction, so
+ * several application instances can allocate ids concurrently. Ids are handed out in blocks using the pooled-lo
+ * optimizer: one table round trip per {@value #ALLOCATION_SIZE_SETTING} inserts, and ids are known before the insert
+ * so inserts can be batched.
+ */
+public class PooledLoTableGenerator extends TableGenerator {
+    public static final String NAME = "pooled";
+    public static final String STRATEGY = "com.learningplatform.webapp.security.model.id.PooledLoTableGenerator";
+    public static final String ALLOCATION_SIZE_SETTING = "app.id.allocation_size";
+
+    private static final String DEFAULT_ALLOCATION_SIZE = "50";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String allocationSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(ALLOCATION_SIZE_SETTING, StandardConverters.STRING, DEFAULT_ALLOCATION_SIZE);
+
+        params.putIfAbsent(TABLE_PARAM, "id_generators");
+        params.putIfAbsent(SEGMENT_COLUMN_PARAM, "segment_name");
+        params.putIfAbsent(VALUE_COLUMN_PARAM, "last_value");
+        params.putIfAbsent(CONFIG_PREFER_SEGMENT_PER_ENTITY, "true");
+        params.putIfAbsent(INCREMENT_PARAM, allocationSize);
+        params.putIfAbsent(OPT_PARAM, "pooled-lo");
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
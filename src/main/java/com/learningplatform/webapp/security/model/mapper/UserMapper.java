@@ -0,0 +1,41 @@
+package com.learningplatform.webapp.security.model.mapper;
+
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.request.UserDetailsRequestModel;
+import com.learningplatform.webapp.security.model.request.UserDetailsUpdateRequestModel;
+import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Mappings between the user request, dto, entity and response models, generated at compile time.
+ * <p>
+ * They mirror what the reflective ModelMapper used to do: the dto built from an entity carries the encrypted
+ * password in {@code password} as well, and a dto's role names are not mapped onto the entity because the
+ * service resolves them against the roles table. An entity's roles reach the dto as role names.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface UserMapper {
+    UserMapper INSTANCE = Mappers.getMapper(UserMapper.class);
+
+    UserDto toUserDto(UserDetailsRequestModel userDetails);
+
+    UserDto toUserDto(UserDetailsUpdateRequestModel userDetails);
+
+    @Mapping(target = "password", source = "encryptedPassword")
+    UserDto toUserDto(UserEntity userEntity);
+
+    @Mapping(target = "roles", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
+    UserEntity toUserEntity(UserDto userDto);
+
+    UserDetailsResponseModel toResponseModel(UserDto userDto);
+
+    default String toRoleName(RoleEntity roleEntity) {
+        return roleEntity.getName();
+    }
+}
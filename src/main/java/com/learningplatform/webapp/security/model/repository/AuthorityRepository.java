@@ -1,10 +1,17 @@
 package com.learningplatform.webapp.security.model.repository;
 
 import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
 public interface AuthorityRepository extends CrudRepository<AuthorityEntity, Long> {
+    // Served from the query cache; any write to the table through Hibernate invalidates it
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     AuthorityEntity findByName(String name);
 }
@@ -0,0 +1,40 @@
+package com.learningplatform.webapp.security.model.repository;
+
+import com.learningplatform.webapp.security.mail.EmailStatus;
+import com.learningplatform.webapp.security.model.entity.EmailOutboxEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends CrudRepository<EmailOutboxEntity, Long> {
+    List<EmailOutboxEntity> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(EmailStatus status, Instant now,
+                                                                                 Pageable pageable);
+
+    /**
+     * Leases a due email to the calling node by pushing its next attempt past the lease. Returns 0 when another
+     * node claimed it first.
+     */
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxEntity e set e.nextAttemptAt = :leaseUntil " +
+            "where e.id = :id and e.status = :status and e.nextAttemptAt = :seen")
+    int claim(@Param("id") Long id, @Param("status") EmailStatus status, @Param("seen") Instant seen,
+              @Param("leaseUntil") Instant leaseUntil);
+
+    /**
+     * Deletes the emails in one of {@code statuses} whose last attempt started before {@code before}.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from EmailOutboxEntity e where e.status in :statuses and e.nextAttemptAt < :before")
+    int deleteFinished(@Param("statuses") Collection<EmailStatus> statuses, @Param("before") Instant before);
+}
@@ -1,11 +1,21 @@
 package com.learningplatform.webapp.security.model.repository;
 
 import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PasswordResetTokenRepository extends CrudRepository<PasswordResetTokenEntity, Long> {
+    @EntityGraph(attributePaths = "userEntity")
     PasswordResetTokenEntity findByToken(String token);
-    PasswordResetTokenEntity findByUserEntity_Email(String email);
+
+    /**
+     * Inner join, so the user is found by the email index first; the derived query's outer join made the
+     * database scan the tokens.
+     */
+    @Query("select t from PasswordResetTokenEntity t join t.userEntity u where u.email = :email")
+    PasswordResetTokenEntity findByUserEntity_Email(@Param("email") String email);
 }
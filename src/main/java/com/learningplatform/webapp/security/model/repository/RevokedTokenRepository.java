@@ -0,0 +1,27 @@
+package com.learningplatform.webapp.security.model.repository;
+
+import com.learningplatform.webapp.security.model.entity.RevokedTokenEntity;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends CrudRepository<RevokedTokenEntity, String> {
+    /**
+     * Runs outside a read-only transaction, so it is answered by the primary even with read replicas configured.
+     */
+    boolean existsByJti(String jti);
+
+    List<RevokedTokenEntity> findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(Instant revokedSince, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedTokenEntity t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -1,12 +1,38 @@
 package com.learningplatform.webapp.security.model.repository;
 
 import com.learningplatform.webapp.security.model.entity.UserEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface UserRepository extends PagingAndSortingRepository<UserEntity, Long> {
     UserEntity findByEmail(String email);
+
+    // Read-only, so the token check can be served by a replica; joins the caller's transaction otherwise
+    @Transactional(readOnly = true)
+    @EntityGraph(UserEntity.AUTHENTICATION_GRAPH)
+    UserEntity findWithAuthoritiesByEmail(String email);
+
+    @EntityGraph(UserEntity.PROFILE_GRAPH)
+    UserEntity findWithRolesByEmail(String email);
+
+    @EntityGraph(UserEntity.PROFILE_GRAPH)
     UserEntity findByUserId(String userId);
+
     UserEntity findByEmailVerificationToken(String token);
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select u.tokenVersion from UserEntity u where u.userId = :userId")
+    Long findTokenVersionByUserId(@Param("userId") String userId);
+
+    @Query("select u.email from UserEntity u where u.email in :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
 }
@@ -0,0 +1,5 @@
+package com.learningplatform.webapp.security.model.request;
+
+public enum BulkFormat {
+    NDJSON, CSV
+}
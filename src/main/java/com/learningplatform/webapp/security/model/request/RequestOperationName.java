@@ -1,5 +1,5 @@
 package com.learningplatform.webapp.security.model.request;
 
 public enum RequestOperationName {
-    DELETE, VERIFY_EMAIL, REQUEST_PASSWORD_RESET, PASSWORD_RESET
+    DELETE, VERIFY_EMAIL, REQUEST_PASSWORD_RESET, PASSWORD_RESET, LOGOUT
 }
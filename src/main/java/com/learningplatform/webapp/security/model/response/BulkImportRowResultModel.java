@@ -0,0 +1,16 @@
+package com.learningplatform.webapp.security.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportRowResultModel {
+    private long row;
+    private String email;
+    private String userId;
+    private String operationResult;
+    private String message;
+}
@@ -0,0 +1,13 @@
+package com.learningplatform.webapp.security.model.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class UserPageResponseModel {
+    private List<UserDetailsResponseModel> users;
+    private String next;
+}
@@ -1,9 +1,17 @@
 package com.learningplatform.webapp.security.properties;
 
+import com.learningplatform.webapp.security.model.id.PooledLoTableGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class AppProperties {
     @Autowired
@@ -12,4 +20,212 @@ public class AppProperties {
     public String getTokenSecret(){
         return environment.getProperty("tokenSecret");
     }
+
+    /**
+     * Additional signing keys by key id ({@code tokenSecrets.<kid>=<secret>}), used for secret rotation.
+     */
+    public Map<String, String> getTokenSecrets() {
+        return Binder.get(environment)
+                .bind("token-secrets", Bindable.mapOf(String.class, String.class))
+                .orElse(Collections.emptyMap());
+    }
+
+    public String getTokenSigningKeyId() {
+        return environment.getProperty("tokenSigningKeyId", "default");
+    }
+
+    public long getPrincipalCacheMaxSize() {
+        return environment.getProperty("principalCache.maxSize", Long.class, 10_000L);
+    }
+
+    public long getPrincipalCacheTtlSeconds() {
+        return environment.getProperty("principalCache.ttlSeconds", Long.class, 60L);
+    }
+
+    public long getTokenCacheMaxSize() {
+        return environment.getProperty("tokenCache.maxSize", Long.class, 100_000L);
+    }
+
+    public long getTokenCacheMaxTtlSeconds() {
+        return environment.getProperty("tokenCache.maxTtlSeconds", Long.class, 3600L);
+    }
+
+    public boolean isSelfContainedTokens() {
+        return environment.getProperty("selfContainedTokens", Boolean.class, false);
+    }
+
+    public long getTokenVersionCacheMaxSize() {
+        return environment.getProperty("tokenVersionCache.maxSize", Long.class, 100_000L);
+    }
+
+    public long getTokenVersionCacheTtlSeconds() {
+        return environment.getProperty("tokenVersionCache.ttlSeconds", Long.class, 30L);
+    }
+
+    public int getEmailOutboxBatchSize() {
+        return environment.getProperty("emailOutbox.batchSize", Integer.class, 50);
+    }
+
+    public int getEmailOutboxConcurrency() {
+        return environment.getProperty("emailOutbox.concurrency", Integer.class, 4);
+    }
+
+    public int getEmailOutboxMaxAttempts() {
+        return environment.getProperty("emailOutbox.maxAttempts", Integer.class, 8);
+    }
+
+    public long getEmailOutboxLeaseMs() {
+        return environment.getProperty("emailOutbox.leaseMs", Long.class, 60_000L);
+    }
+
+    public long getEmailOutboxInitialBackoffMs() {
+        return environment.getProperty("emailOutbox.initialBackoffMs", Long.class, 5_000L);
+    }
+
+    public long getEmailOutboxMaxBackoffMs() {
+        return environment.getProperty("emailOutbox.maxBackoffMs", Long.class, 3_600_000L);
+    }
+
+    public long getEmailOutboxRetentionHours() {
+        return environment.getProperty("emailOutbox.retentionHours", Long.class, 168L);
+    }
+
+    public int getMailPoolMaxSize() {
+        return environment.getProperty("mailPool.maxSize", Integer.class, 4);
+    }
+
+    public long getMailPoolIdleTimeoutMs() {
+        return environment.getProperty("mailPool.idleTimeoutMs", Long.class, 60_000L);
+    }
+
+    public long getMailPoolValidationIntervalMs() {
+        return environment.getProperty("mailPool.validationIntervalMs", Long.class, 5_000L);
+    }
+
+    public long getMailPoolBorrowTimeoutMs() {
+        return environment.getProperty("mailPool.borrowTimeoutMs", Long.class, 30_000L);
+    }
+
+    public int getBulkImportChunkSize() {
+        return environment.getProperty("bulkImport.chunkSize", Integer.class, 500);
+    }
+
+    public int getBulkImportHashingThreads() {
+        return environment.getProperty("bulkImport.hashingThreads", Integer.class,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getBulkExportFetchSize() {
+        return environment.getProperty("bulkExport.fetchSize", Integer.class, 500);
+    }
+
+    public int getPasswordHashingThreads() {
+        return environment.getProperty("passwordHashing.threads", Integer.class,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getPasswordHashingQueueCapacity() {
+        return environment.getProperty("passwordHashing.queueCapacity", Integer.class, 64);
+    }
+
+    public long getPasswordHashingRetryAfterSeconds() {
+        return environment.getProperty("passwordHashing.retryAfterSeconds", Long.class, 1L);
+    }
+
+    public long getPasswordHashingTargetMillis() {
+        return environment.getProperty("passwordHashing.targetMillis", Long.class, 100L);
+    }
+
+    public int getPasswordHashingMinStrength() {
+        return environment.getProperty("passwordHashing.minStrength", Integer.class, 10);
+    }
+
+    public int getPasswordHashingMaxStrength() {
+        return environment.getProperty("passwordHashing.maxStrength", Integer.class, 14);
+    }
+
+    public boolean isLoginThrottleEnabled() {
+        return environment.getProperty("loginThrottle.enabled", Boolean.class, true);
+    }
+
+    public int getLoginThrottleEmailCapacity() {
+        return environment.getProperty("loginThrottle.email.capacity", Integer.class, 5);
+    }
+
+    public int getLoginThrottleEmailRefillPerMinute() {
+        return environment.getProperty("loginThrottle.email.refillPerMinute", Integer.class, 5);
+    }
+
+    public int getLoginThrottleIpCapacity() {
+        return environment.getProperty("loginThrottle.ip.capacity", Integer.class, 50);
+    }
+
+    public int getLoginThrottleIpRefillPerMinute() {
+        return environment.getProperty("loginThrottle.ip.refillPerMinute", Integer.class, 60);
+    }
+
+    public long getLoginThrottleMaxKeys() {
+        return environment.getProperty("loginThrottle.maxKeys", Long.class, 100_000L);
+    }
+
+    public long getLoginThrottleIdleSeconds() {
+        return environment.getProperty("loginThrottle.idleSeconds", Long.class, 900L);
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return environment.getProperty("threads.virtual", Boolean.class, false);
+    }
+
+    public long getReferenceDataCacheMaxSize() {
+        return environment.getProperty("referenceDataCache.maxSize", Long.class, 1_000L);
+    }
+
+    public long getReferenceDataCacheTtlSeconds() {
+        return environment.getProperty("referenceDataCache.ttlSeconds", Long.class, 600L);
+    }
+
+    /**
+     * Read replicas ({@code replicaDataSources[n].url}, {@code .username}, {@code .password}), empty without any.
+     */
+    public List<DataSourceProperties> getReplicaDataSources() {
+        return Binder.get(environment)
+                .bind("replica-data-sources", Bindable.listOf(DataSourceProperties.class))
+                .orElse(Collections.emptyList());
+    }
+
+    public long getReadYourWritesWindowSeconds() {
+        return environment.getProperty("readYourWrites.windowSeconds", Long.class, 5L);
+    }
+
+    public long getReadYourWritesMaxAccounts() {
+        return environment.getProperty("readYourWrites.maxAccounts", Long.class, 100_000L);
+    }
+
+    /**
+     * Revoked tokens that are not expired yet, the Bloom filters in front of the denylist are sized for.
+     */
+    public long getTokenRevocationExpectedRevocations() {
+        return environment.getProperty("tokenRevocation.expectedRevocations", Long.class, 100_000L);
+    }
+
+    public double getTokenRevocationFalsePositiveRate() {
+        return environment.getProperty("tokenRevocation.falsePositiveRate", Double.class, 0.001);
+    }
+
+    public long getTokenRevocationBucketSeconds() {
+        return environment.getProperty("tokenRevocation.bucketSeconds", Long.class, 3_600L);
+    }
+
+    public long getTokenRevocationConfirmedCacheMaxSize() {
+        return environment.getProperty("tokenRevocation.confirmedCache.maxSize", Long.class, 10_000L);
+    }
+
+    public long getTokenRevocationConfirmedCacheTtlSeconds() {
+        return environment.getProperty("tokenRevocation.confirmedCache.ttlSeconds", Long.class, 60L);
+    }
+
+    public int getIdAllocationSize() {
+        return environment.getProperty("spring.jpa.properties." + PooledLoTableGenerator.ALLOCATION_SIZE_SETTING,
+                Integer.class, 50);
+    }
 }
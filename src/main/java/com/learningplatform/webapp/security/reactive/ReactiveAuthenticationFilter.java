@@ -0,0 +1,159 @@
+package com.learningplatform.webapp.security.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.exceptions.LoginThrottledException;
+import com.learningplatform.webapp.security.exceptions.PasswordHashingRejectedException;
+import com.learningplatform.webapp.security.model.request.UserLoginRequestModel;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.throttle.LoginThrottle;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@code POST /users/login} for the reactive stack, answering like {@code AuthenticationFilter}: the token and
+ * public user id in the {@code Authorization} and {@code UserID} headers, 401 for bad credentials, 429 when
+ * throttled and 503 when password hashing is saturated. Publishes the same meters.
+ */
+public class ReactiveAuthenticationFilter implements WebFilter {
+    private final ReactiveAuthenticationManager authenticationManager;
+    private final AppProperties appProperties;
+    private final JwtCodec jwtCodec;
+    private final LoginThrottle loginThrottle;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Timer authenticationSuccessTimer;
+    private final Timer authenticationFailureTimer;
+    private final Timer tokenSignTimer;
+
+    public ReactiveAuthenticationFilter(ReactiveAuthenticationManager authenticationManager,
+                                        AppProperties appProperties, JwtCodec jwtCodec,
+                                        LoginThrottle loginThrottle, MeterRegistry meterRegistry) {
+        this.authenticationManager = authenticationManager;
+        this.appProperties = appProperties;
+        this.jwtCodec = jwtCodec;
+        this.loginThrottle = loginThrottle;
+        this.meterRegistry = meterRegistry;
+        this.authenticationSuccessTimer = authenticationTimer(meterRegistry, "success");
+        this.authenticationFailureTimer = authenticationTimer(meterRegistry, "failure");
+        this.tokenSignTimer = Timer.builder("security.token.sign")
+                .description("Access token signing after a successful login")
+                .register(meterRegistry);
+    }
+
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.authentication")
+                .description("Credential check on login, including the password hash comparison")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+
+        if (request.getMethod() != HttpMethod.POST
+                || !SecurityConstants.LOGIN_URL.equals(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+
+        // Behind a proxy, server.forward-headers-strategy makes the remote address the client's
+        return Mono.fromRunnable(() -> loginThrottle.acquire(LoginThrottle.Scope.IP, clientAddress(request)))
+                .then(readCredentials(request))
+                .flatMap(credentials -> {
+                    loginThrottle.check(LoginThrottle.Scope.EMAIL, credentials.getEmail());
+                    // Only failures count against the email, so nobody can lock the account out by trying to log in
+                    return authenticate(credentials).doOnError(AuthenticationException.class, e ->
+                            loginThrottle.recordFailure(LoginThrottle.Scope.EMAIL, credentials.getEmail()));
+                })
+                .flatMap(authentication -> successfulAuthentication(exchange.getResponse(), authentication))
+                .onErrorResume(LoginThrottledException.class, e ->
+                        reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS, e.getRetryAfterSeconds()))
+                // Overloaded: answer now instead of queueing, and end the request without authenticating
+                .onErrorResume(PasswordHashingRejectedException.class, e ->
+                        reject(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE, e.getRetryAfterSeconds()))
+                .onErrorResume(AuthenticationException.class, e -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    private static String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) return "unknown";
+        return remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress() : remoteAddress.getHostString();
+    }
+
+    private Mono<UserLoginRequestModel> readCredentials(ServerHttpRequest request) {
+        return DataBufferUtils.join(request.getBody()).map(dataBuffer -> {
+            try {
+                return objectMapper.readValue(dataBuffer.asInputStream(), UserLoginRequestModel.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataBufferUtils.release(dataBuffer);
+            }
+        });
+    }
+
+    private Mono<Authentication> authenticate(UserLoginRequestModel credentials) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+                            credentials.getEmail(),
+                            credentials.getPassword(),
+                            new ArrayList<>()))
+                    .doOnSuccess(authentication -> sample.stop(authenticationSuccessTimer))
+                    .doOnError(AuthenticationException.class, e -> sample.stop(authenticationFailureTimer));
+        });
+    }
+
+    private Mono<Void> successfulAuthentication(ServerHttpResponse response, Authentication authResult) {
+        UserPrincipal userPrincipal = (UserPrincipal) authResult.getPrincipal();
+        String userName = userPrincipal.getUsername();
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(SecurityConstants.TOKEN_ID_CLAIM, UUID.randomUUID().toString());
+        if (appProperties.isSelfContainedTokens()) {
+            claims.putAll(userPrincipal.toClaims());
+        }
+        String token = tokenSignTimer.record(
+                () -> jwtCodec.sign(userName, SecurityConstants.TOKEN_EXPIRATION_TIME, claims));
+
+        response.getHeaders().add(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        response.getHeaders().add("UserID", userPrincipal.getUserId());
+        return response.setComplete();
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return response.setComplete();
+    }
+}
@@ -0,0 +1,161 @@
+package com.learningplatform.webapp.security.reactive;
+
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
+import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.reactive.logic.service.ReactiveUserService;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveRevokedTokenRepository;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveUserRepository;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Bearer token check of the reactive stack, resolving the principal like {@code AuthorizationFilter}. The
+ * caches are only read and filled here; a miss is loaded through R2DBC instead of inside the cache, so no
+ * event-loop thread waits for the database.
+ */
+public class ReactiveAuthorizationFilter implements WebFilter {
+    private final ReactiveUserService userService;
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveRevokedTokenRepository revokedTokenRepository;
+    private final PrincipalCache principalCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenVersionCache tokenVersionCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final MeterRegistry meterRegistry;
+    private final Timer tokenParseTimer;
+    private final Timer principalLoadTimer;
+    private final Counter authenticatedCounter;
+    private final Counter rejectedCounter;
+
+    public ReactiveAuthorizationFilter(ReactiveUserService userService, ReactiveUserRepository userRepository,
+                                       ReactiveRevokedTokenRepository revokedTokenRepository,
+                                       PrincipalCache principalCache, VerifiedTokenCache verifiedTokenCache,
+                                       TokenVersionCache tokenVersionCache, TokenRevocationList tokenRevocationList,
+                                       MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.principalCache = principalCache;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenVersionCache = tokenVersionCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.meterRegistry = meterRegistry;
+        this.tokenParseTimer = Timer.builder("security.token.parse")
+                .description("Access token verification, including cache hits")
+                .register(meterRegistry);
+        this.principalLoadTimer = Timer.builder("security.principal.load")
+                .description("Principal lookup in the database on a principal cache miss")
+                .register(meterRegistry);
+        this.authenticatedCounter = authorizationCounter(meterRegistry, "authenticated");
+        this.rejectedCounter = authorizationCounter(meterRegistry, "rejected");
+    }
+
+    private static Counter authorizationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("security.authorization")
+                .description("Requests carrying a bearer token, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(SecurityConstants.HEADER_STRING);
+
+        if (header == null || !header.startsWith(SecurityConstants.TOKEN_PREFIX)) {
+            return chain.filter(exchange);
+        }
+
+        return getAuthentication(header)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnError(e -> rejectedCounter.increment())
+                .flatMap(authentication -> {
+                    (authentication.isPresent() ? authenticatedCounter : rejectedCounter).increment();
+                    return authentication
+                            .map(value -> chain.filter(exchange)
+                                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(value)))
+                            .orElseGet(() -> chain.filter(exchange));
+                });
+    }
+
+    private Mono<UsernamePasswordAuthenticationToken> getAuthentication(String token) {
+        String bearerToken = token.replace(SecurityConstants.TOKEN_PREFIX, "");
+
+        return Mono.fromCallable(() -> tokenParseTimer.record(() -> verifiedTokenCache.parse(bearerToken)))
+                .flatMap(claims -> {
+                    String user = claims.getSubject();
+                    if (user == null) return Mono.empty();
+
+                    return isRevoked(claims)
+                            .filter(revoked -> !revoked)
+                            .flatMap(notRevoked -> claims.containsKey(SecurityConstants.TOKEN_VERSION_CLAIM)
+                                    ? principalFromClaims(claims)
+                                    : loadPrincipal(user))
+                            .map(userPrincipal -> {
+                                UsernamePasswordAuthenticationToken authentication =
+                                        new UsernamePasswordAuthenticationToken(userPrincipal, null,
+                                                userPrincipal.getAuthorities());
+                                // The claims of the token, for POST /users/logout
+                                authentication.setDetails(claims);
+                                return authentication;
+                            });
+                });
+    }
+
+    private Mono<Boolean> isRevoked(Claims claims) {
+        Boolean known = tokenRevocationList.isRevokedIfKnown(claims);
+        if (known != null) return Mono.just(known);
+
+        String jti = claims.getId();
+        return revokedTokenRepository.existsByJti(jti)
+                .map(revoked -> tokenRevocationList.recordLookup(jti, revoked));
+    }
+
+    private Mono<UserPrincipal> principalFromClaims(Claims claims) {
+        UserPrincipal userPrincipal = UserPrincipal.fromClaims(claims);
+        if (userPrincipal == null) return Mono.empty();
+
+        String userId = userPrincipal.getUserId();
+        long tokenVersion = userPrincipal.getTokenVersion();
+
+        Boolean cached = tokenVersionCache.isCurrentIfCached(userId, tokenVersion);
+        Mono<Boolean> isCurrent = cached != null
+                ? Mono.just(cached)
+                : userRepository.findTokenVersionByUserId(userId)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(current -> {
+                            tokenVersionCache.put(userId, current.orElse(null));
+                            return current.isPresent() && current.get() == tokenVersion;
+                        });
+
+        return isCurrent.filter(Boolean::booleanValue).map(current -> userPrincipal);
+    }
+
+    private Mono<UserPrincipal> loadPrincipal(String email) {
+        UserPrincipal cached = principalCache.getIfPresent(email);
+        if (cached != null) return Mono.just(cached);
+
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return userService.findByUsername(email)
+                    .cast(UserPrincipal.class)
+                    .doOnTerminate(() -> sample.stop(principalLoadTimer))
+                    .doOnNext(userPrincipal -> principalCache.put(email, userPrincipal));
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.learningplatform.webapp.security.reactive;
+
+import com.learningplatform.webapp.security.crypto.PasswordHashingExecutor;
+import com.learningplatform.webapp.security.crypto.ReactivePasswordEncoder;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveUserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * Infrastructure of the {@code reactive} profile. JPA stays in place for the email outbox dispatcher and the
+ * initial users, so the R2DBC transaction manager is used through a {@link TransactionalOperator} only and not
+ * registered as a second {@code TransactionManager} bean that {@code @Transactional} would have to choose from.
+ */
+@Configuration
+@Profile("reactive")
+@EnableR2dbcRepositories(basePackageClasses = ReactiveUserRepository.class)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfiguration {
+
+    /**
+     * Boot backs off from the JDBC data source as soon as an R2DBC connection factory exists, so it is declared
+     * here from the same {@code spring.datasource.*} properties.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    @Bean
+    public ReactivePasswordEncoder reactivePasswordEncoder(DelegatingPasswordEncoder delegatingPasswordEncoder,
+                                                           PasswordHashingExecutor passwordHashingExecutor) {
+        return new ReactivePasswordEncoder(delegatingPasswordEncoder, passwordHashingExecutor);
+    }
+
+    /**
+     * Tomcat is on the classpath for the servlet stack and would otherwise be picked for the reactive one too.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
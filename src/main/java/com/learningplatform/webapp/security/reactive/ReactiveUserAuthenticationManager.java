@@ -0,0 +1,64 @@
+package com.learningplatform.webapp.security.reactive;
+
+import com.learningplatform.webapp.security.crypto.ReactivePasswordEncoder;
+import com.learningplatform.webapp.security.reactive.logic.service.ReactiveUserService;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+
+/**
+ * Checks login credentials like the {@code DaoAuthenticationProvider} of the servlet stack: a disabled account
+ * fails before its password is compared, an unknown email still pays for one hash comparison, and a hash below
+ * the current policy is replaced after a successful match.
+ */
+public class ReactiveUserAuthenticationManager implements ReactiveAuthenticationManager {
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+    private static final String BAD_CREDENTIALS = "Bad credentials";
+
+    private final ReactiveUserService userService;
+    private final ReactivePasswordEncoder passwordEncoder;
+    private final Mono<String> userNotFoundEncodedPassword;
+
+    public ReactiveUserAuthenticationManager(ReactiveUserService userService,
+                                             ReactivePasswordEncoder passwordEncoder) {
+        this.userService = userService;
+        this.passwordEncoder = passwordEncoder;
+        this.userNotFoundEncodedPassword = passwordEncoder.encode(USER_NOT_FOUND_PASSWORD).cache();
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        String username = authentication.getName();
+        String presentedPassword = authentication.getCredentials() == null
+                ? "" : authentication.getCredentials().toString();
+
+        return userService.findByUsername(username)
+                .switchIfEmpty(Mono.defer(() -> mitigateAgainstTimingAttack(presentedPassword)))
+                .flatMap(user -> {
+                    if (!user.isEnabled()) return Mono.error(new DisabledException("User is disabled"));
+
+                    return passwordEncoder.matches(presentedPassword, user.getPassword())
+                            .flatMap(matches -> matches
+                                    ? upgradeEncodingIfNecessary(user, presentedPassword)
+                                    : Mono.error(new BadCredentialsException(BAD_CREDENTIALS)));
+                })
+                .map(user -> new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private Mono<UserDetails> mitigateAgainstTimingAttack(String presentedPassword) {
+        return userNotFoundEncodedPassword
+                .flatMap(encodedPassword -> passwordEncoder.matches(presentedPassword, encodedPassword))
+                .then(Mono.error(new BadCredentialsException(BAD_CREDENTIALS)));
+    }
+
+    private Mono<UserDetails> upgradeEncodingIfNecessary(UserDetails user, String presentedPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) return Mono.just(user);
+
+        return passwordEncoder.encode(presentedPassword)
+                .flatMap(newPassword -> userService.updatePassword(user, newPassword));
+    }
+}
@@ -0,0 +1,77 @@
+package com.learningplatform.webapp.security.reactive;
+
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
+import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.crypto.ReactivePasswordEncoder;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.reactive.logic.service.ReactiveUserService;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveRevokedTokenRepository;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveUserRepository;
+import com.learningplatform.webapp.security.throttle.LoginThrottle;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * Counterpart of {@code WebSecurity} for the {@code reactive} profile: stateless, with the same public
+ * endpoints, and the login and bearer token checks as web filters.
+ */
+@EnableWebFluxSecurity
+@Profile("reactive")
+@EnableReactiveMethodSecurity
+public class ReactiveWebSecurity {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveUserService userService,
+                                                         ReactivePasswordEncoder passwordEncoder,
+                                                         ReactiveUserRepository userRepository,
+                                                         ReactiveRevokedTokenRepository revokedTokenRepository,
+                                                         PrincipalCache principalCache,
+                                                         VerifiedTokenCache verifiedTokenCache,
+                                                         TokenVersionCache tokenVersionCache,
+                                                         TokenRevocationList tokenRevocationList,
+                                                         AppProperties appProperties, JwtCodec jwtCodec,
+                                                         LoginThrottle loginThrottle, MeterRegistry meterRegistry) {
+        ReactiveUserAuthenticationManager authenticationManager =
+                new ReactiveUserAuthenticationManager(userService, passwordEncoder);
+
+        return http
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .logout().disable()
+                .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)).and()
+                .authorizeExchange()
+                .pathMatchers(HttpMethod.POST, SecurityConstants.SIGN_UP_URL).permitAll()
+                .pathMatchers(HttpMethod.POST, SecurityConstants.LOGIN_URL).permitAll()
+                .pathMatchers(HttpMethod.GET, SecurityConstants.VERIFICATION_EMAIL_URL).permitAll()
+                .pathMatchers(HttpMethod.POST, SecurityConstants.PASSWORD_RESET_REQUEST_URL).permitAll()
+                .pathMatchers(HttpMethod.POST, SecurityConstants.PASSWORD_RESET_URL).permitAll()
+                .pathMatchers(HttpMethod.GET, SecurityConstants.HEALTH_URL).permitAll()
+                .pathMatchers(SecurityConstants.PROMETHEUS_URL, SecurityConstants.LOGIN_THROTTLE_URL,
+                        SecurityConstants.LOGIN_THROTTLE_URL + "/**")
+                .hasRole("ADMIN")
+                .anyExchange().authenticated().and()
+                .addFilterAt(new ReactiveAuthenticationFilter(authenticationManager, appProperties, jwtCodec,
+                        loginThrottle, meterRegistry), SecurityWebFiltersOrder.FORM_LOGIN)
+                .addFilterAt(new ReactiveAuthorizationFilter(userService, userRepository, revokedTokenRepository,
+                        principalCache, verifiedTokenCache, tokenVersionCache, tokenRevocationList, meterRegistry),
+                        SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
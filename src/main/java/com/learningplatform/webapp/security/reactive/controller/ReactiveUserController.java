@@ -0,0 +1,142 @@
+package com.learningplatform.webapp.security.reactive.controller;
+
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.mapper.UserMapper;
+import com.learningplatform.webapp.security.model.request.*;
+import com.learningplatform.webapp.security.model.response.OperationStatusModel;
+import com.learningplatform.webapp.security.model.response.RequestOperationStatus;
+import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import com.learningplatform.webapp.security.model.response.UserPageResponseModel;
+import com.learningplatform.webapp.security.reactive.logic.service.ReactiveUserService;
+import com.learningplatform.webapp.security.shared.Roles;
+import io.jsonwebtoken.Claims;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+/**
+ * The {@code /users} API of {@code UserController} for the {@code reactive} profile, with the same paths,
+ * models and access rules. The bulk import and export endpoints are only available on the servlet stack.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("users")
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+    private final UserMapper userMapper = UserMapper.INSTANCE;
+
+    public ReactiveUserController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    private static Locale locale(ServerWebExchange exchange) {
+        Locale locale = exchange.getLocaleContext().getLocale();
+        return locale != null ? locale : Locale.getDefault();
+    }
+
+    private static OperationStatusModel operationStatus(RequestOperationName operationName, boolean operationResult) {
+        OperationStatusModel returnValue = new OperationStatusModel();
+        returnValue.setOperationName(operationName.name());
+        returnValue.setOperationResult(operationResult
+                ? RequestOperationStatus.SUCCESS.name() : RequestOperationStatus.ERROR.name());
+        return returnValue;
+    }
+
+    @PostAuthorize("hasRole('ADMIN') or returnObject.userId == principal.userId")
+    @GetMapping(path = "/{id}")
+    public Mono<UserDetailsResponseModel> getUser(@PathVariable String id) {
+        return userService.getUserByUserId(id).map(userMapper::toResponseModel);
+    }
+
+    @PostMapping
+    public Mono<UserDetailsResponseModel> createUser(@RequestBody UserDetailsRequestModel userDetails,
+                                                     ServerWebExchange exchange) {
+        UserDto userDto = userMapper.toUserDto(userDetails);
+        userDto.setRoles(new HashSet<>(Collections.singletonList(Roles.ROLE_USER.name())));
+
+        return userService.createUser(userDto, locale(exchange)).map(userMapper::toResponseModel);
+    }
+
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.userId")
+    @PutMapping(path = "/{id}")
+    public Mono<UserDetailsResponseModel> updateUser(@PathVariable String id,
+                                                     @RequestBody UserDetailsUpdateRequestModel userDetails) {
+        UserDto userDto = userMapper.toUserDto(userDetails);
+
+        return userService.updateUser(id, userDto).map(userMapper::toResponseModel);
+    }
+
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.userId")
+    @DeleteMapping(path = "/{id}")
+    public Mono<OperationStatusModel> deleteUser(@PathVariable String id) {
+        return userService.deleteUser(id)
+                .then(Mono.fromSupplier(() -> operationStatus(RequestOperationName.DELETE, true)));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping
+    public Flux<UserDetailsResponseModel> getUsers(@RequestParam(value = "page", defaultValue = "0") int page,
+                                                   @RequestParam(value = "limit", defaultValue = "25") int limit) {
+        return userService.getUsers(page, limit).map(userMapper::toResponseModel);
+    }
+
+    /**
+     * Cursor mode of the listing, selected by the presence of {@code cursor}; pass an empty cursor for the first
+     * page and the returned {@code next} for the following ones.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(params = "cursor")
+    public Mono<UserPageResponseModel> getUsers(@RequestParam(value = "cursor") String cursor,
+                                                @RequestParam(value = "limit", defaultValue = "25") int limit) {
+        return userService.getUsers(cursor, limit).map(usersPage -> {
+            List<UserDetailsResponseModel> users = new ArrayList<>();
+            for (UserDto userDto : usersPage.getUsers()) {
+                users.add(userMapper.toResponseModel(userDto));
+            }
+
+            UserPageResponseModel returnValue = new UserPageResponseModel();
+            returnValue.setUsers(users);
+            returnValue.setNext(usersPage.getNext());
+            return returnValue;
+        });
+    }
+
+    @GetMapping(path = "/email-verification")
+    public Mono<OperationStatusModel> verifyEmailToken(@RequestParam(value = "token") String token,
+                                                       ServerWebExchange exchange) {
+        return userService.verifyEmailToken(token, locale(exchange))
+                .map(isVerified -> operationStatus(RequestOperationName.VERIFY_EMAIL, isVerified));
+    }
+
+    @PostMapping(path = "/password-reset-request")
+    public Mono<OperationStatusModel> requestPasswordReset(@RequestBody PasswordResetRequestModel passwordResetRequestModel,
+                                                           ServerWebExchange exchange) {
+        return userService.requestPasswordReset(passwordResetRequestModel.getEmail(), locale(exchange))
+                .map(operationResult -> operationStatus(RequestOperationName.REQUEST_PASSWORD_RESET, operationResult));
+    }
+
+    @PostMapping(path = "/password-reset")
+    public Mono<OperationStatusModel> resetPassword(@RequestBody PasswordResetModel passwordResetModel) {
+        return userService.resetPassword(passwordResetModel.getToken(), passwordResetModel.getPassword())
+                .map(operationResult -> operationStatus(RequestOperationName.PASSWORD_RESET, operationResult));
+    }
+
+    /**
+     * Revokes the bearer token of the request until it expires.
+     */
+    @PostMapping(path = "/logout")
+    public Mono<OperationStatusModel> logout(Authentication authentication) {
+        Mono<Boolean> revoked = authentication.getDetails() instanceof Claims
+                ? userService.revokeToken((Claims) authentication.getDetails())
+                : Mono.just(false);
+
+        return revoked.map(operationResult -> operationStatus(RequestOperationName.LOGOUT, operationResult));
+    }
+}
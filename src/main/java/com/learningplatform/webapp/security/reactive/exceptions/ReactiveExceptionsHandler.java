@@ -0,0 +1,51 @@
+package com.learningplatform.webapp.security.reactive.exceptions;
+
+import com.learningplatform.webapp.security.exceptions.ErrorMessage;
+import com.learningplatform.webapp.security.exceptions.PasswordHashingRejectedException;
+import com.learningplatform.webapp.security.exceptions.UserServiceException;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Date;
+
+/**
+ * The error responses of {@code AppExceptionsHandler} for the {@code reactive} profile; WebFlux passes the
+ * exchange where the servlet stack passes a {@code WebRequest}.
+ */
+@ControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionsHandler {
+
+    @ExceptionHandler(value = {UserServiceException.class})
+    public ResponseEntity<Object> handleUserServiceException(UserServiceException ex, ServerWebExchange exchange) {
+        ErrorMessage errorMessage = new ErrorMessage(new Date(), ex.getMessage());
+        return new ResponseEntity<>(errorMessage, new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler(value = {PasswordHashingRejectedException.class})
+    public ResponseEntity<Object> handlePasswordHashingRejectedException(PasswordHashingRejectedException ex,
+                                                                         ServerWebExchange exchange) {
+        ErrorMessage errorMessage = new ErrorMessage(new Date(), ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return new ResponseEntity<>(errorMessage, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(value = {Exception.class})
+    public ResponseEntity<Object> handleOtherExceptions(Exception ex, ServerWebExchange exchange) {
+        ErrorMessage errorMessage = new ErrorMessage(new Date(), ex.getMessage());
+        return new ResponseEntity<>(errorMessage, new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler(value = {ExpiredJwtException.class})
+    public ResponseEntity<Object> handleExpiredJwtExceptionExceptions(Exception ex, ServerWebExchange exchange) {
+        ErrorMessage errorMessage = new ErrorMessage(new Date(), ex.getMessage());
+        return new ResponseEntity<>(errorMessage, new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+}
@@ -0,0 +1,29 @@
+package com.learningplatform.webapp.security.reactive.logic.service;
+
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Non-blocking counterpart of {@code UserService}. Operations that queue an email take the request locale,
+ * which the servlet stack reads from a thread-local.
+ */
+public interface ReactiveUserService extends ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
+    Mono<UserDto> createUser(UserDto user, Locale locale);
+    Mono<Void> deleteUser(String userId);
+    Flux<UserDto> getUsers(int page, int limit);
+    Mono<UserPageDto> getUsers(String cursor, int limit);
+    Mono<UserDto> getUser(String email);
+    Mono<UserDto> getUserByUserId(String userId);
+    Mono<UserDto> updateUser(String userId, UserDto user);
+    Mono<Boolean> verifyEmailToken(String token, Locale locale);
+    Mono<Boolean> requestPasswordReset(String email, Locale locale);
+    Mono<Boolean> resetPassword(String token, String password);
+    Mono<Boolean> revokeToken(Claims claims);
+}
@@ -0,0 +1,418 @@
+package com.learningplatform.webapp.security.reactive.logic.serviceImpl;
+
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.crypto.ReactivePasswordEncoder;
+import com.learningplatform.webapp.security.exceptions.ErrorMessages;
+import com.learningplatform.webapp.security.exceptions.UserServiceException;
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
+import com.learningplatform.webapp.security.reactive.logic.service.ReactiveUserService;
+import com.learningplatform.webapp.security.reactive.mail.ReactiveEmailOutbox;
+import com.learningplatform.webapp.security.reactive.model.id.ReactiveIdAllocator;
+import com.learningplatform.webapp.security.reactive.model.mapper.ReactiveUserMapper;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactivePasswordResetTokenRepository;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveRevokedTokenRepository;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveRoleRepository;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveUserRepository;
+import com.learningplatform.webapp.security.reactive.model.row.PasswordResetTokenRow;
+import com.learningplatform.webapp.security.reactive.model.row.UserRow;
+import com.learningplatform.webapp.security.shared.Utils;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same behaviour and messages as {@code UserServiceImpl}, over R2DBC. Writes run in a {@link TransactionalOperator}
+ * and evict the principal and token version caches once it commits. {@code @Timed} only sees the assembly of a
+ * publisher, so the {@code user.service} timer is recorded when the publisher terminates instead.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+    private static final String METRIC_NAME = "user.service";
+    private static final String USERS_SEGMENT = "users";
+    private static final String PASSWORD_RESET_TOKENS_SEGMENT = "password_reset_tokens";
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveRoleRepository roleRepository;
+    private final ReactivePasswordResetTokenRepository passwordResetTokenRepository;
+    private final ReactiveRevokedTokenRepository revokedTokenRepository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final ReactiveIdAllocator idAllocator;
+    private final TransactionalOperator transactionalOperator;
+    private final Utils utils;
+    private final ReactivePasswordEncoder passwordEncoder;
+    private final ReactiveEmailOutbox emailOutbox;
+    private final PrincipalCache principalCache;
+    private final TokenVersionCache tokenVersionCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final MeterRegistry meterRegistry;
+    private final ReactiveUserMapper userMapper = ReactiveUserMapper.INSTANCE;
+    private final Timer createUserHashTimer;
+    private final Timer resetPasswordHashTimer;
+
+    public ReactiveUserServiceImpl(ReactiveUserRepository userRepository, ReactiveRoleRepository roleRepository,
+                                   ReactivePasswordResetTokenRepository passwordResetTokenRepository,
+                                   ReactiveRevokedTokenRepository revokedTokenRepository,
+                                   R2dbcEntityTemplate entityTemplate, ReactiveIdAllocator idAllocator,
+                                   TransactionalOperator transactionalOperator, Utils utils,
+                                   ReactivePasswordEncoder passwordEncoder, ReactiveEmailOutbox emailOutbox,
+                                   PrincipalCache principalCache, TokenVersionCache tokenVersionCache,
+                                   TokenRevocationList tokenRevocationList, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.entityTemplate = entityTemplate;
+        this.idAllocator = idAllocator;
+        this.transactionalOperator = transactionalOperator;
+        this.utils = utils;
+        this.passwordEncoder = passwordEncoder;
+        this.emailOutbox = emailOutbox;
+        this.principalCache = principalCache;
+        this.tokenVersionCache = tokenVersionCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.meterRegistry = meterRegistry;
+        this.createUserHashTimer = passwordHashTimer(meterRegistry, "createUser");
+        this.resetPasswordHashTimer = passwordHashTimer(meterRegistry, "resetPassword");
+    }
+
+    private static Timer passwordHashTimer(MeterRegistry meterRegistry, String method) {
+        return Timer.builder("security.password.hash")
+                .description("BCrypt hashing of a new password")
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<UserDto> createUser(UserDto user, Locale locale) {
+        Mono<UserDto> returnValue = userRepository.findByEmail(user.getEmail())
+                .flatMap(existing -> Mono.<UserDto>error(new RuntimeException("Record already exists")))
+                .switchIfEmpty(Mono.defer(() -> {
+                    UserRow userRow = userMapper.toUserRow(user);
+
+                    String publicUserId = utils.generateUserId(30);
+                    userRow.setUserId(publicUserId);
+                    userRow.setEmailVerificationToken(utils.generateEmailVerificationToken(publicUserId));
+                    userRow.setEmailVerificationStatus(false);
+
+                    return timedHash(createUserHashTimer, passwordEncoder.encode(user.getPassword()))
+                            .flatMap(encryptedPassword -> {
+                                userRow.setEncryptedPassword(encryptedPassword);
+                                return insertUser(userRow, user.getRoles(), locale);
+                            });
+                }));
+
+        return timed("createUser", returnValue);
+    }
+
+    private Mono<UserDto> insertUser(UserRow userRow, Collection<String> roles, Locale locale) {
+        Mono<UserDto> insert = idAllocator.nextId(USERS_SEGMENT)
+                .flatMap(id -> {
+                    userRow.setId(id);
+                    return entityTemplate.insert(userRow);
+                })
+                .flatMap(storedUser -> {
+                    Mono<Integer> assignRoles = roles == null || roles.isEmpty()
+                            ? Mono.just(0)
+                            : roleRepository.assignRoles(storedUser.getId(), roles);
+
+                    // Queue verification email, sent once this transaction commits
+                    return assignRoles
+                            .then(emailOutbox.enqueueVerificationEmail(storedUser, locale))
+                            .then(roleRepository.findRoleNamesByUserId(storedUser.getId()).collectList())
+                            .map(roleNames -> {
+                                UserDto returnValue = userMapper.toUserDto(storedUser);
+                                returnValue.setRoles(roleNames);
+                                return returnValue;
+                            });
+                });
+
+        return transactionalOperator.transactional(insert);
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return timed("findByUsername", userRepository.findByEmail(username).flatMap(this::toUserPrincipal));
+    }
+
+    /**
+     * Called by the authentication manager after a successful login when the stored hash is below the current
+     * policy. The password itself is unchanged, so issued tokens stay valid.
+     */
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        Mono<UserDetails> returnValue = userRepository.findByEmail(user.getUsername())
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException(user.getUsername())))
+                .flatMap(userRow -> {
+                    userRow.setEncryptedPassword(newPassword);
+                    return userRepository.save(userRow);
+                })
+                .doOnSuccess(savedUser -> principalCache.evict(savedUser.getEmail()))
+                .flatMap(this::toUserPrincipal);
+
+        return timed("updatePassword", returnValue);
+    }
+
+    private Mono<UserDetails> toUserPrincipal(UserRow userRow) {
+        return Flux.concat(roleRepository.findRoleNamesByUserId(userRow.getId()),
+                        roleRepository.findAuthorityNamesByUserId(userRow.getId()))
+                .collectList()
+                .map(authorityNames -> new UserPrincipal(userRow.getUserId(), userRow.getEmail(),
+                        userRow.getEncryptedPassword(), Boolean.TRUE.equals(userRow.getEmailVerificationStatus()),
+                        userRow.getTokenVersion() == null ? 0L : userRow.getTokenVersion(), authorityNames));
+    }
+
+    @Override
+    public Mono<UserDto> getUser(String email) {
+        Mono<UserDto> returnValue = userRepository.findByEmail(email)
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException(email)))
+                .map(userMapper::toUserDto);
+
+        return timed("getUser", returnValue);
+    }
+
+    @Override
+    public Mono<UserDto> getUserByUserId(String userId) {
+        Mono<UserDto> returnValue = userRepository.findByUserId(userId)
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException("User with ID: " + userId + " not found")))
+                .map(userMapper::toUserDto);
+
+        return timed("getUserByUserId", returnValue);
+    }
+
+    @Override
+    public Mono<UserDto> updateUser(String userId, UserDto user) {
+        Mono<UserDto> returnValue = userRepository.findByUserId(userId)
+                .switchIfEmpty(Mono.error(() -> new UserServiceException(ErrorMessages.NO_RECORD_FOUND.getErrorMessage())))
+                .flatMap(userRow -> {
+                    userRow.setFirstName(user.getFirstName());
+                    userRow.setLastName(user.getLastName());
+                    return userRepository.save(userRow);
+                })
+                .doOnSuccess(updatedUser -> principalCache.evict(updatedUser.getEmail()))
+                .map(userMapper::toUserDto);
+
+        return timed("updateUser", returnValue);
+    }
+
+    @Override
+    public Mono<Void> deleteUser(String userId) {
+        Mono<UserRow> delete = userRepository.findByUserId(userId)
+                .switchIfEmpty(Mono.error(() -> new UserServiceException(ErrorMessages.NO_RECORD_FOUND.getErrorMessage())))
+                .flatMap(userRow -> roleRepository.removeRoles(userRow.getId())
+                        .then(userRepository.delete(userRow))
+                        .thenReturn(userRow));
+
+        Mono<Void> returnValue = transactionalOperator.transactional(delete)
+                .doOnSuccess(userRow -> {
+                    principalCache.evict(userRow.getEmail());
+                    tokenVersionCache.evict(userRow.getUserId());
+                })
+                .then();
+
+        return timed("deleteUser", returnValue);
+    }
+
+    @Override
+    public Flux<UserDto> getUsers(int page, int limit) {
+        Mono<List<UserDto>> returnValue = userRepository.findPage((long) page * limit, limit)
+                .map(userMapper::toUserDto)
+                .collectList();
+
+        return timed("getUsers", returnValue).flatMapIterable(users -> users);
+    }
+
+    /**
+     * Keyset pagination as in {@code UserServiceImpl#getUsers(String, int)}.
+     */
+    @Override
+    public Mono<UserPageDto> getUsers(String cursor, int requestedLimit) {
+        int limit = Utils.cursorLimit(requestedLimit);
+        Mono<UserPageDto> returnValue = Mono.fromCallable(() -> Utils.decodeCursor(cursor))
+                .flatMap(afterId -> userRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit + 1).collectList())
+                .map(users -> {
+                    boolean hasNext = users.size() > limit;
+                    if (hasNext) {
+                        users = users.subList(0, limit);
+                    }
+
+                    List<UserDto> userDtos = new ArrayList<>(users.size());
+                    for (UserRow userRow : users) {
+                        userDtos.add(userMapper.toUserDto(userRow));
+                    }
+
+                    UserPageDto userPage = new UserPageDto();
+                    userPage.setUsers(userDtos);
+                    userPage.setNext(hasNext ? Utils.encodeCursor(users.get(users.size() - 1).getId()) : null);
+                    return userPage;
+                });
+
+        return timed("getUsers", returnValue);
+    }
+
+    @Override
+    public Mono<Boolean> verifyEmailToken(String token, Locale locale) {
+        Mono<UserRow> verify = userRepository.findByEmailVerificationToken(token)
+                .flatMap(userRow -> {
+                    boolean hasTokenExpired;
+                    try {
+                        hasTokenExpired = utils.hasTokenExpired(token);
+                    } catch (ExpiredJwtException e) {
+                        userRow.setEmailVerificationToken(utils.generateEmailVerificationToken(userRow.getUserId()));
+                        userRow.setEmailVerificationStatus(false);
+                        return userRepository.save(userRow)
+                                .flatMap(savedUser -> emailOutbox.enqueueVerificationEmail(savedUser, locale)
+                                        .thenReturn(savedUser));
+                    }
+
+                    if (hasTokenExpired) return Mono.empty();
+
+                    userRow.setEmailVerificationToken(null);
+                    userRow.setEmailVerificationStatus(true);
+                    return userRepository.save(userRow);
+                });
+
+        Mono<Boolean> returnValue = transactionalOperator.transactional(verify)
+                .doOnSuccess(userRow -> {
+                    if (userRow != null) principalCache.evict(userRow.getEmail());
+                })
+                .map(userRow -> Boolean.TRUE.equals(userRow.getEmailVerificationStatus()))
+                .defaultIfEmpty(false);
+
+        return timed("verifyEmailToken", returnValue);
+    }
+
+    @Override
+    public Mono<Boolean> requestPasswordReset(String email, Locale locale) {
+        Mono<Boolean> request = userRepository.findByEmail(email)
+                .flatMap(userRow -> {
+                    String token = utils.generatePasswordResetToken(userRow.getUserId());
+
+                    Mono<PasswordResetTokenRow> saveToken = passwordResetTokenRepository.findByUserId(userRow.getId())
+                            .flatMap(existing -> {
+                                existing.setToken(token);
+                                return passwordResetTokenRepository.save(existing);
+                            })
+                            .switchIfEmpty(Mono.defer(() -> idAllocator.nextId(PASSWORD_RESET_TOKENS_SEGMENT)
+                                    .flatMap(id -> {
+                                        PasswordResetTokenRow passwordResetToken = new PasswordResetTokenRow();
+                                        passwordResetToken.setId(id);
+                                        passwordResetToken.setToken(token);
+                                        passwordResetToken.setUserId(userRow.getId());
+                                        return entityTemplate.insert(passwordResetToken);
+                                    })));
+
+                    return saveToken
+                            .then(emailOutbox.enqueuePasswordResetEmail(userRow, token, locale))
+                            .thenReturn(true);
+                })
+                .defaultIfEmpty(false);
+
+        return timed("requestPasswordReset", transactionalOperator.transactional(request));
+    }
+
+    @Override
+    public Mono<Boolean> resetPassword(String token, String password) {
+        Mono<Boolean> returnValue = Mono.fromCallable(() -> utils.hasTokenExpired(token))
+                .filter(hasTokenExpired -> !hasTokenExpired)
+                .flatMap(notExpired -> passwordResetTokenRepository.findByToken(token))
+                .flatMap(passwordResetToken -> timedHash(resetPasswordHashTimer, passwordEncoder.encode(password))
+                        .flatMap(encodedPassword -> {
+                            Mono<UserRow> reset = userRepository.findById(passwordResetToken.getUserId())
+                                    .flatMap(userRow -> {
+                                        userRow.setEncryptedPassword(encodedPassword);
+                                        revokeIssuedTokens(userRow);
+                                        return userRepository.save(userRow);
+                                    })
+                                    .flatMap(savedUser -> passwordResetTokenRepository.delete(passwordResetToken)
+                                            .thenReturn(savedUser));
+
+                            return transactionalOperator.transactional(reset)
+                                    .doOnSuccess(savedUser -> {
+                                        if (savedUser == null) return;
+                                        principalCache.evict(savedUser.getEmail());
+                                        tokenVersionCache.evict(savedUser.getUserId());
+                                    })
+                                    .map(savedUser -> savedUser.getEncryptedPassword().equalsIgnoreCase(encodedPassword));
+                        }))
+                .defaultIfEmpty(false);
+
+        return timed("resetPassword", returnValue);
+    }
+
+    @Override
+    public Mono<Boolean> revokeToken(Claims claims) {
+        String jti = claims.getId();
+        Date expiration = claims.getExpiration();
+        if (jti == null || expiration == null) return Mono.just(false);
+
+        Instant expiresAt = expiration.toInstant();
+        Mono<Boolean> returnValue = revokedTokenRepository
+                .insert(jti, LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), LocalDateTime.now())
+                .doOnSuccess(inserted -> tokenRevocationList.addRevocation(jti, expiresAt))
+                .thenReturn(true);
+
+        return timed("revokeToken", returnValue);
+    }
+
+    /**
+     * Invalidates every self-contained token issued so far. Must be called on password and role changes.
+     */
+    private void revokeIssuedTokens(UserRow userRow) {
+        long tokenVersion = userRow.getTokenVersion() == null ? 0L : userRow.getTokenVersion();
+        userRow.setTokenVersion(tokenVersion + 1);
+    }
+
+    private static <T> Mono<T> timedHash(Timer timer, Mono<T> hash) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return hash.doOnSuccess(hashed -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Records {@code user.service} with the tags {@code TimedAspect} uses, from subscription to termination.
+     */
+    private <T> Mono<T> timed(String method, Mono<T> mono) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono.doOnEach(signal -> {
+                if (signal.isOnComplete() || signal.isOnError()) {
+                    sample.stop(serviceTimer(method, signal));
+                }
+            });
+        });
+    }
+
+    private Timer serviceTimer(String method, Signal<?> signal) {
+        return Timer.builder(METRIC_NAME)
+                .tag("class", getClass().getName())
+                .tag("method", method)
+                .tag("exception", signal.isOnError() ? signal.getThrowable().getClass().getSimpleName() : "none")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,61 @@
+package com.learningplatform.webapp.security.reactive.mail;
+
+import com.learningplatform.webapp.security.mail.EmailStatus;
+import com.learningplatform.webapp.security.mail.EmailType;
+import com.learningplatform.webapp.security.reactive.model.id.ReactiveIdAllocator;
+import com.learningplatform.webapp.security.reactive.model.row.EmailOutboxRow;
+import com.learningplatform.webapp.security.reactive.model.row.UserRow;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Reactive {@code EmailOutbox}: callers compose it into the transaction that changes the user, and
+ * {@code EmailOutboxDispatcher} sends the row as it does for the servlet stack.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveEmailOutbox {
+    private static final String SEGMENT = "email_outbox";
+
+    private final R2dbcEntityTemplate entityTemplate;
+    private final ReactiveIdAllocator idAllocator;
+
+    public ReactiveEmailOutbox(R2dbcEntityTemplate entityTemplate, ReactiveIdAllocator idAllocator) {
+        this.entityTemplate = entityTemplate;
+        this.idAllocator = idAllocator;
+    }
+
+    public Mono<Void> enqueueVerificationEmail(UserRow user, Locale locale) {
+        return enqueue(EmailType.VERIFICATION, user, user.getEmailVerificationToken(), locale);
+    }
+
+    public Mono<Void> enqueuePasswordResetEmail(UserRow user, String token, Locale locale) {
+        return enqueue(EmailType.PASSWORD_RESET, user, token, locale);
+    }
+
+    private Mono<Void> enqueue(EmailType type, UserRow user, String token, Locale locale) {
+        return idAllocator.nextId(SEGMENT).flatMap(id -> {
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+            EmailOutboxRow email = new EmailOutboxRow();
+            email.setId(id);
+            email.setType(type);
+            email.setRecipient(user.getEmail());
+            email.setRecipientName(user.getFirstName() + " " + user.getLastName());
+            email.setToken(token);
+            email.setLocale(locale.toLanguageTag());
+            email.setStatus(EmailStatus.PENDING);
+            email.setAttempts(0);
+            email.setNextAttemptAt(now);
+            email.setCreatedAt(now);
+
+            return entityTemplate.insert(email).then();
+        });
+    }
+}
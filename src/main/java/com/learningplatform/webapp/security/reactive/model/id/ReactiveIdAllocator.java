@@ -0,0 +1,86 @@
+package com.learningplatform.webapp.security.reactive.model.id;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.DelegatingConnectionFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking counterpart of {@code PooledLoTableGenerator} over the same {@code id_generators} rows, so ids
+ * handed out here never collide with the ones Hibernate allocates. A block of {@code allocationSize} ids is
+ * reserved by advancing {@code last_value} with a compare-and-set update; the ids are {@code last_value + 1}
+ * up to the new value.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveIdAllocator {
+    private static final long EXHAUSTED = -1L;
+
+    private final DatabaseClient databaseClient;
+    private final int allocationSize;
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public ReactiveIdAllocator(ConnectionFactory connectionFactory, AppProperties appProperties) {
+        // A distinct factory instance never joins the caller's transaction, like Hibernate's isolated work
+        this.databaseClient = DatabaseClient.create(new DelegatingConnectionFactory(connectionFactory));
+        this.allocationSize = appProperties.getIdAllocationSize();
+    }
+
+    public Mono<Long> nextId(String segment) {
+        return Mono.defer(() -> {
+            Block block = blocks.get(segment);
+            long id = block == null ? EXHAUSTED : block.next();
+            if (id != EXHAUSTED) return Mono.just(id);
+
+            return allocate(segment).map(allocated -> {
+                blocks.put(segment, allocated);
+                return allocated.next();
+            });
+        });
+    }
+
+    private Mono<Block> allocate(String segment) {
+        return databaseClient.sql("select last_value from id_generators where segment_name = :segment")
+                .bind("segment", segment)
+                .map(row -> row.get("last_value", Long.class))
+                .one()
+                .switchIfEmpty(Mono.defer(() -> databaseClient
+                        .sql("insert into id_generators (segment_name, last_value) values (:segment, 0)")
+                        .bind("segment", segment)
+                        .then()
+                        .thenReturn(0L)))
+                .flatMap(lastValue -> databaseClient
+                        .sql("update id_generators set last_value = :next"
+                                + " where segment_name = :segment and last_value = :current")
+                        .bind("next", lastValue + allocationSize)
+                        .bind("segment", segment)
+                        .bind("current", lastValue)
+                        .fetch()
+                        .rowsUpdated()
+                        .flatMap(rows -> rows == 1
+                                ? Mono.just(new Block(lastValue + 1, lastValue + allocationSize))
+                                : allocate(segment)));
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long last;
+
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        long next() {
+            long id = next.getAndIncrement();
+            return id <= last ? id : EXHAUSTED;
+        }
+    }
+}
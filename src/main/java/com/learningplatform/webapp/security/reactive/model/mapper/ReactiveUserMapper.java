@@ -0,0 +1,24 @@
+package com.learningplatform.webapp.security.reactive.model.mapper;
+
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.reactive.model.row.UserRow;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Row counterpart of {@code UserMapper}; like there, the dto built from a row carries the encrypted password
+ * in {@code password}. Role names are not part of the row and stay unset.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface ReactiveUserMapper {
+    ReactiveUserMapper INSTANCE = Mappers.getMapper(ReactiveUserMapper.class);
+
+    @Mapping(target = "password", source = "encryptedPassword")
+    UserDto toUserDto(UserRow userRow);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
+    UserRow toUserRow(UserDto userDto);
+}
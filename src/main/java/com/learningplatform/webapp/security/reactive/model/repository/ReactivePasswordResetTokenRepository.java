@@ -0,0 +1,12 @@
+package com.learningplatform.webapp.security.reactive.model.repository;
+
+import com.learningplatform.webapp.security.reactive.model.row.PasswordResetTokenRow;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactivePasswordResetTokenRepository extends ReactiveCrudRepository<PasswordResetTokenRow, Long> {
+    Mono<PasswordResetTokenRow> findByToken(String token);
+    Mono<PasswordResetTokenRow> findByUserId(Long userId);
+}
@@ -0,0 +1,22 @@
+package com.learningplatform.webapp.security.reactive.model.repository;
+
+import com.learningplatform.webapp.security.reactive.model.row.RevokedTokenRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ReactiveRevokedTokenRepository extends ReactiveCrudRepository<RevokedTokenRow, String> {
+    Mono<Boolean> existsByJti(String jti);
+
+    /**
+     * Plain insert, as {@code save} would update a row whose id is assigned by the caller.
+     */
+    @Modifying
+    @Query("insert into revoked_tokens (jti, expires_at, revoked_at) values (:jti, :expiresAt, :revokedAt)")
+    Mono<Integer> insert(String jti, LocalDateTime expiresAt, LocalDateTime revokedAt);
+}
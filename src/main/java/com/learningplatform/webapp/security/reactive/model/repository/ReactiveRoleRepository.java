@@ -0,0 +1,34 @@
+package com.learningplatform.webapp.security.reactive.model.repository;
+
+import com.learningplatform.webapp.security.reactive.model.row.RoleRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Roles and authorities of a user through the {@code users_roles} and {@code roles_authorities} join tables.
+ */
+@Repository
+public interface ReactiveRoleRepository extends ReactiveCrudRepository<RoleRow, Long> {
+    @Query("select r.name from roles r join users_roles ur on ur.roles_id = r.id where ur.users_id = :userId")
+    Flux<String> findRoleNamesByUserId(long userId);
+
+    @Query("select distinct a.name from authorities a"
+            + " join roles_authorities ra on ra.authorities_id = a.id"
+            + " join users_roles ur on ur.roles_id = ra.roles_id"
+            + " where ur.users_id = :userId")
+    Flux<String> findAuthorityNamesByUserId(long userId);
+
+    @Modifying
+    @Query("insert into users_roles (users_id, roles_id) select :userId, id from roles where name in (:names)")
+    Mono<Integer> assignRoles(long userId, Collection<String> names);
+
+    @Modifying
+    @Query("delete from users_roles where users_id = :userId")
+    Mono<Integer> removeRoles(long userId);
+}
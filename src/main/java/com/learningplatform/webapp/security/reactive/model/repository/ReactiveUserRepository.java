@@ -0,0 +1,24 @@
+package com.learningplatform.webapp.security.reactive.model.repository;
+
+import com.learningplatform.webapp.security.reactive.model.row.UserRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveUserRepository extends ReactiveCrudRepository<UserRow, Long> {
+    Mono<UserRow> findByEmail(String email);
+    Mono<UserRow> findByUserId(String userId);
+    Mono<UserRow> findByEmailVerificationToken(String token);
+
+    @Query("select * from users order by id limit :limit offset :offset")
+    Flux<UserRow> findPage(long offset, int limit);
+
+    @Query("select * from users where id > :id order by id limit :limit")
+    Flux<UserRow> findByIdGreaterThanOrderByIdAsc(long id, int limit);
+
+    @Query("select token_version from users where user_id = :userId")
+    Mono<Long> findTokenVersionByUserId(String userId);
+}
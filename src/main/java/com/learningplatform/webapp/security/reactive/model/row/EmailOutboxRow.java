@@ -0,0 +1,32 @@
+package com.learningplatform.webapp.security.reactive.model.row;
+
+import com.learningplatform.webapp.security.mail.EmailStatus;
+import com.learningplatform.webapp.security.mail.EmailType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row written by the reactive stack and sent by {@code EmailOutboxDispatcher}. Times are local
+ * date-times in the JVM zone, which is how Hibernate stores the entity's {@code Instant} columns.
+ */
+@Table("email_outbox")
+@Getter
+@Setter
+public class EmailOutboxRow {
+    @Id
+    private Long id;
+    private EmailType type;
+    private String recipient;
+    private String recipientName;
+    private String token;
+    private String locale;
+    private EmailStatus status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+}
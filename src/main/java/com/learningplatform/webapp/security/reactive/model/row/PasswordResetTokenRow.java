@@ -0,0 +1,16 @@
+package com.learningplatform.webapp.security.reactive.model.row;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("password_reset_tokens")
+@Getter
+@Setter
+public class PasswordResetTokenRow {
+    @Id
+    private Long id;
+    private String token;
+    private Long userId;
+}
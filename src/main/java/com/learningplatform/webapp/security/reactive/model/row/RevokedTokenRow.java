@@ -0,0 +1,22 @@
+package com.learningplatform.webapp.security.reactive.model.row;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of the token denylist, see {@code TokenRevocationList}. Times are local date-times in the JVM zone, like
+ * the entity's {@code Instant} columns written by Hibernate.
+ */
+@Table("revoked_tokens")
+@Getter
+@Setter
+public class RevokedTokenRow {
+    @Id
+    private String jti;
+    private LocalDateTime expiresAt;
+    private LocalDateTime revokedAt;
+}
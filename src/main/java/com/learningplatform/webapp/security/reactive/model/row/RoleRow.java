@@ -0,0 +1,15 @@
+package com.learningplatform.webapp.security.reactive.model.row;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("roles")
+@Getter
+@Setter
+public class RoleRow {
+    @Id
+    private Long id;
+    private String name;
+}
@@ -0,0 +1,26 @@
+package com.learningplatform.webapp.security.reactive.model.row;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * The {@code users} row as read by R2DBC. Unlike {@code UserEntity} it carries no associations; role and
+ * authority names are queried separately.
+ */
+@Table("users")
+@Getter
+@Setter
+public class UserRow {
+    @Id
+    private Long id;
+    private String userId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String encryptedPassword;
+    private String emailVerificationToken;
+    private Boolean emailVerificationStatus = false;
+    private Long tokenVersion = 0L;
+}
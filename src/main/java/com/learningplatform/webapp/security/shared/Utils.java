@@ -1,19 +1,32 @@
 package com.learningplatform.webapp.security.shared;
 
+import com.learningplatform.webapp.security.cache.VerifiedTokenCache;
 import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.exceptions.ErrorMessages;
+import com.learningplatform.webapp.security.exceptions.UserServiceException;
+import com.learningplatform.webapp.security.token.JwtCodec;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Random;
 
 @Component
 public class Utils {
+    public static final int MAX_CURSOR_LIMIT = 500;
+
     private final Random RANDOM = new SecureRandom();
     private final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtCodec jwtCodec;
+
+    public Utils(VerifiedTokenCache verifiedTokenCache, JwtCodec jwtCodec) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwtCodec = jwtCodec;
+    }
 
     public String generateUserId(int length) {
         return generateRandomString(length);
@@ -29,10 +42,8 @@ public class Utils {
         return new String(returnValue);
     }
 
-    public static boolean hasTokenExpired(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(SecurityConstants.getTokenSecret())
-                .parseClaimsJws(token).getBody();
+    public boolean hasTokenExpired(String token) {
+        Claims claims = verifiedTokenCache.parse(token);
 
         Date tokenExpirationDate = claims.getExpiration();
         Date todayDate = new Date();
@@ -41,23 +52,38 @@ public class Utils {
     }
 
     public String generateEmailVerificationToken(String userId) {
-        String token;
-        token = Jwts.builder()
-                .setSubject(userId)
-                .setExpiration(new Date(System.currentTimeMillis() + SecurityConstants.TOKEN_EXPIRATION_TIME))
-                .signWith(SignatureAlgorithm.HS512, SecurityConstants.getTokenSecret())
-                .compact();
-        return token;
+        return jwtCodec.sign(userId, SecurityConstants.TOKEN_EXPIRATION_TIME);
     }
 
     public String generatePasswordResetToken(String userId) {
-        String token;
-        token = Jwts.builder()
-                .setSubject(userId)
-                .setExpiration(new Date(System.currentTimeMillis() + SecurityConstants.PASSWORD_RESET_TOKEN_EXPIRATION_TIME))
-                .signWith(SignatureAlgorithm.HS512, SecurityConstants.getTokenSecret())
-                .compact();
-        return token;
+        return jwtCodec.sign(userId, SecurityConstants.PASSWORD_RESET_TOKEN_EXPIRATION_TIME);
+    }
+
+    /**
+     * Opaque keyset cursor pointing after the row with {@code id}.
+     */
+    public static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Rows per page of a cursor listing for the requested {@code limit}, brought into 1..{@value #MAX_CURSOR_LIMIT}.
+     */
+    public static int cursorLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_CURSOR_LIMIT));
+    }
+
+    /**
+     * Id encoded in {@code cursor}, or 0 for an empty cursor.
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return 0L;
+
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new UserServiceException(ErrorMessages.INVALID_CURSOR.getErrorMessage());
+        }
     }
 
 }
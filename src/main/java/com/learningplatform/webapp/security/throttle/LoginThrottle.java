@@ -0,0 +1,217 @@
+package com.learningplatform.webapp.security.throttle;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.learningplatform.webapp.security.exceptions.LoginThrottledException;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory login throttle checked before the credentials reach the {@code AuthenticationManager}, so
+ * rejected attempts cost neither a database lookup nor a password hash. Every attempt takes a token from
+ * the bucket of its client address. The bucket of an email is only checked up front and charged for failed
+ * attempts, so logging in with the right password never uses up the account's budget. Each scope keeps at most
+ * {@code loginThrottle.maxKeys} buckets and drops the ones that stay idle long enough to have refilled completely.
+ */
+@Component
+public class LoginThrottle {
+    public enum Scope {
+        EMAIL, IP
+    }
+
+    private final boolean enabled;
+    private final Limiter emailLimiter;
+    private final Limiter ipLimiter;
+    private final Ticker ticker;
+
+    @Autowired
+    public LoginThrottle(AppProperties appProperties, MeterRegistry meterRegistry) {
+        this(appProperties, meterRegistry, Ticker.systemTicker());
+    }
+
+    LoginThrottle(AppProperties appProperties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.enabled = appProperties.isLoginThrottleEnabled();
+        this.ticker = ticker;
+        this.emailLimiter = new Limiter(Scope.EMAIL, appProperties.getLoginThrottleEmailCapacity(),
+                appProperties.getLoginThrottleEmailRefillPerMinute(), appProperties, meterRegistry, ticker);
+        this.ipLimiter = new Limiter(Scope.IP, appProperties.getLoginThrottleIpCapacity(),
+                appProperties.getLoginThrottleIpRefillPerMinute(), appProperties, meterRegistry, ticker);
+    }
+
+    /**
+     * Takes one attempt from the bucket of {@code key}, or throws {@link LoginThrottledException} with the
+     * time until the next attempt is allowed.
+     */
+    public void acquire(Scope scope, String key) {
+        if (!enabled) return;
+
+        limiter(scope).acquire(normalize(key), ticker.read());
+    }
+
+    /**
+     * Throws {@link LoginThrottledException} when the bucket of {@code key} is empty, without taking a token.
+     */
+    public void check(Scope scope, String key) {
+        if (!enabled) return;
+
+        limiter(scope).check(normalize(key), ticker.read());
+    }
+
+    /**
+     * Takes one token from the bucket of {@code key} for a failed attempt.
+     */
+    public void recordFailure(Scope scope, String key) {
+        if (!enabled) return;
+
+        limiter(scope).consume(normalize(key), ticker.read());
+    }
+
+    /**
+     * Counters of one key, or {@code null} when the key has no bucket.
+     */
+    public KeyStats getStats(Scope scope, String key) {
+        Limiter limiter = limiter(scope);
+        String normalizedKey = normalize(key);
+        TokenBucket bucket = limiter.buckets.getIfPresent(normalizedKey);
+        return bucket == null ? null : limiter.stats(normalizedKey, bucket, ticker.read());
+    }
+
+    /**
+     * Keys of one scope with the most rejected attempts first.
+     */
+    public List<KeyStats> getMostRejected(Scope scope, int limit) {
+        Limiter limiter = limiter(scope);
+        long now = ticker.read();
+        return limiter.buckets.asMap().entrySet().stream()
+                .map(entry -> limiter.stats(entry.getKey(), entry.getValue(), now))
+                .sorted(Comparator.comparingLong(KeyStats::getRejected).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private Limiter limiter(Scope scope) {
+        return scope == Scope.EMAIL ? emailLimiter : ipLimiter;
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Limiter {
+        private final Cache<String, TokenBucket> buckets;
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final Counter allowedCounter;
+        private final Counter rejectedCounter;
+
+        Limiter(Scope scope, int capacity, int refillPerMinute, AppProperties appProperties,
+                MeterRegistry meterRegistry, Ticker ticker) {
+            this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+            this.burstToleranceNanos = emissionIntervalNanos * capacity;
+
+            // A bucket idle for its whole refill time is full again, so evicting it loses nothing
+            long idleNanos = Math.max(TimeUnit.SECONDS.toNanos(appProperties.getLoginThrottleIdleSeconds()),
+                    burstToleranceNanos);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(appProperties.getLoginThrottleMaxKeys())
+                    .expireAfterAccess(Duration.ofNanos(idleNanos))
+                    .ticker(ticker)
+                    .build();
+
+            String tag = scope.name().toLowerCase(Locale.ROOT);
+            this.allowedCounter = throttleCounter(meterRegistry, tag, "allowed");
+            this.rejectedCounter = throttleCounter(meterRegistry, tag, "rejected");
+            Gauge.builder("security.login.throttle.keys", buckets, Cache::estimatedSize)
+                    .description("Login throttle buckets currently tracked")
+                    .tag("scope", tag)
+                    .register(meterRegistry);
+        }
+
+        private static Counter throttleCounter(MeterRegistry meterRegistry, String scope, String result) {
+            return Counter.builder("security.login.throttle")
+                    .description("Login attempts checked by the throttle")
+                    .tag("scope", scope)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        void acquire(String key, long now) {
+            TokenBucket bucket = buckets.get(key, k -> new TokenBucket(now));
+            long waitNanos = bucket.tryAcquire(now, emissionIntervalNanos, burstToleranceNanos);
+
+            if (waitNanos == 0) {
+                allowedCounter.increment();
+                return;
+            }
+            reject(waitNanos);
+        }
+
+        void check(String key, long now) {
+            // A key without a bucket has all its tokens
+            TokenBucket bucket = buckets.getIfPresent(key);
+            long waitNanos = bucket == null ? 0 : bucket.check(now, emissionIntervalNanos, burstToleranceNanos);
+
+            if (waitNanos == 0) {
+                allowedCounter.increment();
+                return;
+            }
+            reject(waitNanos);
+        }
+
+        void consume(String key, long now) {
+            buckets.get(key, k -> new TokenBucket(now)).consume(now, emissionIntervalNanos, burstToleranceNanos);
+        }
+
+        private void reject(long waitNanos) {
+            rejectedCounter.increment();
+            throw new LoginThrottledException(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000));
+        }
+
+        KeyStats stats(String key, TokenBucket bucket, long now) {
+            return new KeyStats(key, bucket.getAllowedCount(), bucket.getRejectedCount(),
+                    bucket.availableTokens(now, emissionIntervalNanos, burstToleranceNanos));
+        }
+    }
+
+    public static final class KeyStats {
+        private final String key;
+        private final long allowed;
+        private final long rejected;
+        private final double availableTokens;
+
+        KeyStats(String key, long allowed, long rejected, double availableTokens) {
+            this.key = key;
+            this.allowed = allowed;
+            this.rejected = rejected;
+            this.availableTokens = availableTokens;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getAllowed() {
+            return allowed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getAvailableTokens() {
+            return availableTokens;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.learningplatform.webapp.security.throttle;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/loginthrottle} lists the most rejected keys per scope;
+ * {@code /actuator/loginthrottle/{scope}/{key}} shows the counters of one key.
+ */
+@Component
+@Endpoint(id = "loginthrottle")
+public class LoginThrottleEndpoint {
+    private static final int TOP_KEYS = 20;
+
+    private final LoginThrottle loginThrottle;
+
+    public LoginThrottleEndpoint(LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+    }
+
+    @ReadOperation
+    public Map<LoginThrottle.Scope, List<LoginThrottle.KeyStats>> mostRejected() {
+        Map<LoginThrottle.Scope, List<LoginThrottle.KeyStats>> returnValue = new EnumMap<>(LoginThrottle.Scope.class);
+        for (LoginThrottle.Scope scope : LoginThrottle.Scope.values()) {
+            returnValue.put(scope, loginThrottle.getMostRejected(scope, TOP_KEYS));
+        }
+        return returnValue;
+    }
+
+    @ReadOperation
+    public LoginThrottle.KeyStats key(@Selector LoginThrottle.Scope scope, @Selector String key) {
+        return loginThrottle.getStats(scope, key);
+    }
+}
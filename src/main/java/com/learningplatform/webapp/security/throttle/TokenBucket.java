@@ -0,0 +1,77 @@
+package com.learningplatform.webapp.security.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time", advanced with
+ * a CAS by one emission interval per accepted attempt. The bucket is full when that time is in the past and
+ * empty when it is {@code capacity} intervals ahead of now.
+ */
+final class TokenBucket {
+    private final AtomicLong theoreticalArrivalTime;
+    private final LongAdder allowedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    TokenBucket(long now) {
+        this.theoreticalArrivalTime = new AtomicLong(now);
+    }
+
+    /**
+     * Takes one token. Returns 0 when the attempt is allowed, otherwise the nanoseconds until a token is
+     * available again.
+     */
+    long tryAcquire(long now, long emissionIntervalNanos, long burstToleranceNanos) {
+        while (true) {
+            long current = theoreticalArrivalTime.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            long waitNanos = next - now - burstToleranceNanos;
+
+            if (waitNanos > 0) {
+                rejectedCount.increment();
+                return waitNanos;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                allowedCount.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Checks for a token without taking it. Returns 0 when one is available, otherwise the nanoseconds until
+     * one is.
+     */
+    long check(long now, long emissionIntervalNanos, long burstToleranceNanos) {
+        long waitNanos = Math.max(theoreticalArrivalTime.get(), now) + emissionIntervalNanos - now
+                - burstToleranceNanos;
+
+        if (waitNanos > 0) {
+            rejectedCount.increment();
+            return waitNanos;
+        }
+        allowedCount.increment();
+        return 0;
+    }
+
+    /**
+     * Takes one token if any is left; an empty bucket stays empty rather than going into debt.
+     */
+    void consume(long now, long emissionIntervalNanos, long burstToleranceNanos) {
+        theoreticalArrivalTime.accumulateAndGet(now, (current, at) ->
+                Math.min(Math.max(current, at) + emissionIntervalNanos, at + burstToleranceNanos));
+    }
+
+    double availableTokens(long now, long emissionIntervalNanos, long burstToleranceNanos) {
+        long backlog = Math.max(theoreticalArrivalTime.get() - now, 0);
+        return (double) (burstToleranceNanos - backlog) / emissionIntervalNanos;
+    }
+
+    long getAllowedCount() {
+        return allowedCount.sum();
+    }
+
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
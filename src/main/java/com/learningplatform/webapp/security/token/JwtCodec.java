@@ -0,0 +1,241 @@
+package com.learningplatform.webapp.security.token;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import io.jsonwebtoken.impl.DefaultJwsHeader;
+import io.jsonwebtoken.impl.TextCodec;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Signs and verifies the HS512 tokens used across the application.
+ * <p>
+ * Key material is derived once at startup and every key keeps a small pool of initialized {@link Mac}s, so signing
+ * and verification neither look the secret up nor set up a new {@code Mac} per call. Tokens are tagged with a
+ * {@code kid}; every configured key is accepted for verification while only the active one signs, which allows
+ * rotating the secret without invalidating tokens already issued. Tokens without a {@code kid} are verified with
+ * the {@value #DEFAULT_KEY_ID} key ({@code tokenSecret}). The wire format is the one jjwt produces, so tokens
+ * stay interchangeable with {@code Jwts.parser()}.
+ */
+@Component
+public class JwtCodec {
+    public static final String DEFAULT_KEY_ID = "default";
+    private static final int MAX_TOKEN_LENGTH = 8192;
+    /**
+     * Idle {@code Mac}s kept per key. Signing never blocks, so about one per core is in use at a time, also when
+     * requests run on virtual threads.
+     */
+    private static final int MAX_IDLE_MACS = 2 * Runtime.getRuntime().availableProcessors();
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<Map<String, Object>>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final Base64.Decoder decoder = Base64.getUrlDecoder();
+    private final Map<String, SigningKey> keys;
+    private final SigningKey signingKey;
+
+    public JwtCodec(AppProperties appProperties) {
+        Map<String, String> secrets = new LinkedHashMap<>();
+        if (appProperties.getTokenSecret() != null) {
+            secrets.put(DEFAULT_KEY_ID, appProperties.getTokenSecret());
+        }
+        secrets.putAll(appProperties.getTokenSecrets());
+
+        Map<String, SigningKey> keys = new HashMap<>();
+        secrets.forEach((keyId, secret) -> keys.put(keyId, new SigningKey(keyId, secret)));
+        this.keys = Collections.unmodifiableMap(keys);
+
+        this.signingKey = this.keys.get(appProperties.getTokenSigningKeyId());
+        if (this.signingKey == null) {
+            throw new IllegalStateException("No token secret configured for key id " + appProperties.getTokenSigningKeyId());
+        }
+    }
+
+    public String sign(String subject, long validForMillis) {
+        return sign(subject, validForMillis, Collections.emptyMap());
+    }
+
+    public String sign(String subject, long validForMillis, Map<String, Object> claims) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put(Claims.SUBJECT, subject);
+        body.put(Claims.EXPIRATION, (System.currentTimeMillis() + validForMillis) / 1000);
+        body.putAll(claims);
+
+        String signingInput = signingKey.encodedHeader + '.' + encoder.encodeToString(toJson(body));
+        return signingInput + '.' + encoder.encodeToString(signingKey.sign(signingInput));
+    }
+
+    /**
+     * Verifies {@code token} and returns its claims. Throws the same exceptions as
+     * {@code Jwts.parser().parseClaimsJws}.
+     */
+    public Claims parse(String token) {
+        int firstDot = sniff(token);
+        int secondDot = token.indexOf('.', firstDot + 1);
+
+        JwsHeader<?> header = new DefaultJwsHeader(fromJson(token.substring(0, firstDot)));
+        if (!SignatureAlgorithm.HS512.getValue().equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unsupported JWT algorithm: " + header.getAlgorithm());
+        }
+
+        SigningKey key = keys.get(header.getKeyId() == null ? DEFAULT_KEY_ID : header.getKeyId());
+        if (key == null) {
+            throw new SignatureException("Unknown JWT signing key id: " + header.getKeyId());
+        }
+
+        byte[] expected = key.sign(token.substring(0, secondDot));
+        byte[] actual = decode(token.substring(secondDot + 1));
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new SignatureException("JWT signature does not match locally computed signature.");
+        }
+
+        Claims claims = new DefaultClaims(fromJson(token.substring(firstDot + 1, secondDot)));
+        long now = System.currentTimeMillis();
+
+        if (claims.getExpiration() != null && now > claims.getExpiration().getTime()) {
+            throw new ExpiredJwtException(header, claims, "JWT expired at " + claims.getExpiration());
+        }
+        if (claims.getNotBefore() != null && now < claims.getNotBefore().getTime()) {
+            throw new PrematureJwtException(header, claims, "JWT must not be accepted before " + claims.getNotBefore());
+        }
+
+        return claims;
+    }
+
+    /**
+     * Rejects anything that is not shaped like a compact JWS before any decoding or crypto is done.
+     * Returns the index of the first dot.
+     */
+    private static int sniff(String token) {
+        if (token == null || token.isEmpty() || token.length() > MAX_TOKEN_LENGTH) {
+            throw new MalformedJwtException("JWT is empty or too long");
+        }
+
+        int firstDot = -1;
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (++dots > 2) break;
+                if (firstDot < 0) firstDot = i;
+            } else if (!isBase64Url(c)) {
+                throw new MalformedJwtException("JWT contains illegal character at index " + i);
+            }
+        }
+
+        int lastDot = token.lastIndexOf('.');
+        if (dots != 2 || firstDot == 0 || lastDot == firstDot + 1 || lastDot == token.length() - 1) {
+            throw new MalformedJwtException("JWT must consist of a header, a payload and a signature");
+        }
+        return firstDot;
+    }
+
+    private static boolean isBase64Url(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    private byte[] decode(String segment) {
+        try {
+            return decoder.decode(segment);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Unable to decode JWT segment", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String segment) {
+        try {
+            return objectMapper.readValue(decode(segment), JSON_MAP);
+        } catch (IOException e) {
+            throw new MalformedJwtException("Unable to read JWT JSON value", e);
+        }
+    }
+
+    private byte[] toJson(Map<String, Object> value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize JWT", e);
+        }
+    }
+
+    private final class SigningKey {
+        private final String keyId;
+        private final String encodedHeader;
+        private final Mac prototype;
+        private final Queue<Mac> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        private SigningKey(String keyId, String secret) {
+            // Same key derivation as jjwt's signWith(SignatureAlgorithm, String), which treats the secret as Base64
+            SecretKeySpec keySpec = new SecretKeySpec(TextCodec.BASE64.decode(secret),
+                    SignatureAlgorithm.HS512.getJcaName());
+
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put(JwsHeader.KEY_ID, keyId);
+            header.put(JwsHeader.ALGORITHM, SignatureAlgorithm.HS512.getValue());
+            this.keyId = keyId;
+            this.encodedHeader = encoder.encodeToString(toJson(header));
+
+            try {
+                this.prototype = Mac.getInstance(keySpec.getAlgorithm());
+                this.prototype.init(keySpec);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize HMAC for key id " + keyId, e);
+            }
+        }
+
+        private byte[] sign(String signingInput) {
+            Mac mac = borrow();
+            byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+            release(mac);
+            return signature;
+        }
+
+        private Mac borrow() {
+            Mac mac = idle.poll();
+            if (mac != null) {
+                idleCount.decrementAndGet();
+                return mac;
+            }
+            // Copies the keyed state of the prototype, skipping the provider lookup and the key setup
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("Unable to copy HMAC for key id " + keyId, e);
+            }
+        }
+
+        private void release(Mac mac) {
+            if (idleCount.incrementAndGet() <= MAX_IDLE_MACS) {
+                idle.offer(mac);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+}
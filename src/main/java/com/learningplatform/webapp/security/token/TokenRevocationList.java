@@ -0,0 +1,177 @@
+package com.learningplatform.webapp.security.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learningplatform.webapp.security.constants.SecurityConstants;
+import com.learningplatform.webapp.security.model.entity.RevokedTokenEntity;
+import com.learningplatform.webapp.security.model.repository.RevokedTokenRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Denylist of access tokens revoked before their expiry, by {@code jti}. The {@code revoked_tokens} table is the
+ * source of truth; in front of it every node keeps Bloom filters, one per {@code tokenRevocation.bucketSeconds}
+ * of token expiry, so a token that was never revoked is let through without a database lookup. A filter hit is
+ * confirmed against the table and the answer cached for a short time.
+ * <p>
+ * A token is filed under the bucket of its own {@code exp}, so a whole bucket is dropped once its last token has
+ * expired and the filters never fill up with dead entries. The filters are rebuilt from the table at startup and
+ * follow the revocations of the other nodes by polling the table.
+ */
+@Component
+public class TokenRevocationList {
+    /**
+     * Polls look this far behind the previous one, for revocations committed late or stamped by a node whose
+     * clock is behind.
+     */
+    private static final Duration POLL_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Clock clock;
+    private final long bucketSeconds;
+    private final long bucketCapacity;
+    private final double falsePositiveRate;
+    private final ConcurrentNavigableMap<Long, BloomFilter> buckets = new ConcurrentSkipListMap<>();
+    private final Cache<String, Boolean> confirmed;
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    @Autowired
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository, AppProperties appProperties) {
+        this(revokedTokenRepository, appProperties, Clock.systemUTC());
+    }
+
+    TokenRevocationList(RevokedTokenRepository revokedTokenRepository, AppProperties appProperties, Clock clock) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.clock = clock;
+        this.bucketSeconds = appProperties.getTokenRevocationBucketSeconds();
+        this.falsePositiveRate = appProperties.getTokenRevocationFalsePositiveRate();
+        // Revocations spread over the expiries of a token lifetime, one bucket holds its share of them
+        long lifetimeSeconds = TimeUnit.MILLISECONDS.toSeconds(SecurityConstants.TOKEN_EXPIRATION_TIME);
+        this.bucketCapacity = (long) Math.ceil((double) appProperties.getTokenRevocationExpectedRevocations()
+                * Math.min(bucketSeconds, lifetimeSeconds) / lifetimeSeconds);
+        this.confirmed = Caffeine.newBuilder()
+                .maximumSize(appProperties.getTokenRevocationConfirmedCacheMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(appProperties.getTokenRevocationConfirmedCacheTtlSeconds()))
+                .build();
+    }
+
+    /**
+     * Loads every revocation that has not expired yet, before the node accepts any request.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Instant now = clock.instant();
+        buckets.clear();
+        confirmed.invalidateAll();
+        for (RevokedTokenEntity revokedToken : revokedTokenRepository
+                .findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(Instant.EPOCH, now)) {
+            addRevocation(revokedToken.getJti(), revokedToken.getExpiresAt());
+        }
+        lastPoll = now;
+    }
+
+    /**
+     * Picks up the revocations made on other nodes since the previous poll.
+     */
+    @Scheduled(fixedDelayString = "${tokenRevocation.pollIntervalMs:5000}")
+    public void refresh() {
+        Instant now = clock.instant();
+        for (RevokedTokenEntity revokedToken : revokedTokenRepository
+                .findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(lastPoll.minus(POLL_OVERLAP), now)) {
+            addRevocation(revokedToken.getJti(), revokedToken.getExpiresAt());
+        }
+        lastPoll = now;
+        dropExpiredBuckets(now);
+    }
+
+    @Scheduled(fixedDelayString = "${tokenRevocation.purgeIntervalMs:600000}")
+    public void purge() {
+        Instant now = clock.instant();
+        dropExpiredBuckets(now);
+        revokedTokenRepository.deleteExpired(now);
+    }
+
+    /**
+     * Revokes the token of {@code claims} until it expires. Returns false for tokens without a {@code jti},
+     * which were issued before tokens had one and can only be revoked by bumping the user's token version.
+     */
+    public boolean revoke(Claims claims) {
+        String jti = claims.getId();
+        Date expiration = claims.getExpiration();
+        if (jti == null || expiration == null) return false;
+
+        Instant expiresAt = expiration.toInstant();
+        revokedTokenRepository.save(new RevokedTokenEntity(jti, expiresAt, clock.instant()));
+        addRevocation(jti, expiresAt);
+        return true;
+    }
+
+    /**
+     * Whether the token of {@code claims} was revoked, looking it up in the database on a Bloom filter hit.
+     */
+    public boolean isRevoked(Claims claims) {
+        Boolean known = isRevokedIfKnown(claims);
+        return known != null ? known : confirm(claims.getId());
+    }
+
+    /**
+     * Like {@link #isRevoked(Claims)} but returns {@code null} instead of looking the token up, for callers that
+     * look it up without blocking and then {@link #recordLookup(String, boolean) record} the answer.
+     */
+    public Boolean isRevokedIfKnown(Claims claims) {
+        String jti = claims.getId();
+        Date expiration = claims.getExpiration();
+        if (jti == null || expiration == null) return Boolean.FALSE;
+
+        BloomFilter bucket = buckets.get(bucket(expiration.toInstant()));
+        if (bucket == null || !bucket.mightContain(jti)) return Boolean.FALSE;
+
+        return confirmed.getIfPresent(jti);
+    }
+
+    public boolean confirm(String jti) {
+        return recordLookup(jti, revokedTokenRepository.existsByJti(jti));
+    }
+
+    /**
+     * Caches whether the database has {@code jti} revoked and returns the answer to use; a revocation that
+     * arrived meanwhile wins over the lookup.
+     */
+    public boolean recordLookup(String jti, boolean revoked) {
+        return confirmed.asMap().merge(jti, revoked, Boolean::logicalOr);
+    }
+
+    /**
+     * Adds a revocation stored in {@code revoked_tokens} to the filters of this node.
+     */
+    public void addRevocation(String jti, Instant expiresAt) {
+        long bucket = bucket(expiresAt);
+        if (bucket < bucket(clock.instant())) return;
+
+        buckets.computeIfAbsent(bucket, key -> new BloomFilter(bucketCapacity, falsePositiveRate)).put(jti);
+        confirmed.put(jti, Boolean.TRUE);
+    }
+
+    /**
+     * Drops the buckets whose tokens have all expired; {@link JwtCodec} rejects those tokens on its own.
+     */
+    private void dropExpiredBuckets(Instant now) {
+        buckets.headMap(bucket(now)).clear();
+    }
+
+    private long bucket(Instant expiresAt) {
+        return Math.floorDiv(expiresAt.getEpochSecond(), bucketSeconds);
+    }
+}
@@ -0,0 +1,6 @@
+-- Columns the repositories look rows up by, see RepositoryIndexUsageTest
+create unique index uk_users_user_id on users (user_id);
+create index idx_users_email_verification_token on users (email_verification_token);
+create index idx_password_reset_tokens_token on password_reset_tokens (token);
+create unique index uk_roles_name on roles (name);
+create unique index uk_authorities_name on authorities (name);
@@ -0,0 +1,10 @@
+-- Denylist of access tokens revoked before their expiry, by jti; rows are purged once expires_at has passed
+create table revoked_tokens
+(
+    jti        varchar(36) primary key,
+    expires_at datetime(6) not null,
+    revoked_at datetime(6) not null
+);
+
+create index idx_revoked_tokens_revoked_at on revoked_tokens (revoked_at);
+create index idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
@@ -0,0 +1,15 @@
+create table email_outbox
+(
+    id              bigint primary key auto_increment,
+    type            varchar(30)  not null,
+    recipient       varchar(120) not null,
+    recipient_name  varchar(101) not null,
+    token           varchar(512) not null,
+    status          varchar(20)  not null,
+    attempts        int          not null,
+    next_attempt_at datetime(6)  not null,
+    last_error      varchar(500),
+    created_at      datetime(6)  not null
+);
+
+create index idx_email_outbox_status_next_attempt_at on email_outbox (status, next_attempt_at);
@@ -0,0 +1,17 @@
+-- One row per entity table holding the last id handed out, see PooledLoTableGenerator
+create table id_generators
+(
+    segment_name varchar(255) not null primary key,
+    last_value   bigint       not null
+);
+
+insert into id_generators (segment_name, last_value)
+select 'users', coalesce(max(id), 0) from users
+union all
+select 'roles', coalesce(max(id), 0) from roles
+union all
+select 'authorities', coalesce(max(id), 0) from authorities
+union all
+select 'password_reset_tokens', coalesce(max(id), 0) from password_reset_tokens
+union all
+select 'email_outbox', coalesce(max(id), 0) from email_outbox;
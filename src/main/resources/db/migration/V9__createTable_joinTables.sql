@@ -0,0 +1,19 @@
+-- Join tables of UserEntity.roles and RoleEntity.authorities. Databases that ran with ddl-auto=update already
+-- have them, created by Hibernate together with an index per foreign key.
+create table if not exists users_roles
+(
+    users_id bigint not null,
+    roles_id bigint not null,
+    primary key (users_id, roles_id),
+    foreign key (users_id) references users (id),
+    foreign key (roles_id) references roles (id)
+);
+
+create table if not exists roles_authorities
+(
+    roles_id       bigint not null,
+    authorities_id bigint not null,
+    primary key (roles_id, authorities_id),
+    foreign key (roles_id) references roles (id),
+    foreign key (authorities_id) references authorities (id)
+);
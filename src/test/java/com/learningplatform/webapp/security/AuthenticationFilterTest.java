@@ -0,0 +1,105 @@
+package com.learningplatform.webapp.security;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.throttle.LoginThrottle;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AuthenticationFilterTest {
+
+    @Mock
+    AuthenticationManager authenticationManager;
+
+    @Mock
+    AppProperties appProperties;
+
+    @Mock
+    JwtCodec jwtCodec;
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    Authentication authentication = new UsernamePasswordAuthenticationToken("john@mail.com", null);
+
+    AuthenticationFilter authenticationFilter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.isLoginThrottleEnabled()).thenReturn(true);
+        when(appProperties.getLoginThrottleEmailCapacity()).thenReturn(3);
+        when(appProperties.getLoginThrottleEmailRefillPerMinute()).thenReturn(1);
+        when(appProperties.getLoginThrottleIpCapacity()).thenReturn(10);
+        when(appProperties.getLoginThrottleIpRefillPerMinute()).thenReturn(1);
+        when(appProperties.getLoginThrottleMaxKeys()).thenReturn(100L);
+        when(appProperties.getLoginThrottleIdleSeconds()).thenReturn(60L);
+
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            Authentication credentials = invocation.getArgument(0);
+            if (!"correctPassword".equals(credentials.getCredentials())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return authentication;
+        });
+
+        authenticationFilter = new AuthenticationFilter(authenticationManager, appProperties, jwtCodec,
+                new LoginThrottle(appProperties, meterRegistry), meterRegistry);
+    }
+
+    @Test
+    void attemptAuthentication_allowsCorrectPasswordAfterOtherClientsSpentTheEmailBudget() {
+        //given
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertSame(authentication, login("10.0.0." + i, "correctPassword", new MockHttpServletResponse()));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        //when
+        Authentication returnValue = login("10.0.1.1", "correctPassword", response);
+        //then
+        Assertions.assertSame(authentication, returnValue);
+        Assertions.assertEquals(HttpStatus.OK.value(), response.getStatus());
+    }
+
+    @Test
+    void attemptAuthentication_throttlesEmailAfterFailedAttempts() {
+        //given
+        for (int i = 0; i < 3; i++) {
+            String remoteAddress = "10.0.0." + i;
+            Assertions.assertThrows(BadCredentialsException.class,
+                    () -> login(remoteAddress, "wrongPassword", new MockHttpServletResponse()));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        //when
+        Authentication returnValue = login("10.0.1.1", "correctPassword", response);
+        //then
+        Assertions.assertNull(returnValue);
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        verify(authenticationManager, times(3)).authenticate(any());
+    }
+
+    private Authentication login(String remoteAddress, String password, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users/login");
+        request.setRemoteAddr(remoteAddress);
+        request.setContent(("{\"email\":\"john@mail.com\",\"password\":\"" + password + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return authenticationFilter.attemptAuthentication(request, response);
+    }
+}
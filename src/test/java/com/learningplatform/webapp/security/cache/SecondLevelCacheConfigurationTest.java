@@ -0,0 +1,115 @@
+package com.learningplatform.webapp.security.cache;
+
+import com.learningplatform.webapp.security.model.JpaTestDatabase;
+import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.repository.AuthorityRepository;
+import com.learningplatform.webapp.security.model.repository.RoleRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the repositories against the Flyway schema with the cache settings of the application, one transaction
+ * and session per call, and counts the SQL statements and cache hits with Hibernate statistics. The session
+ * factory only starts when every cached region is declared by {@link SecondLevelCacheConfiguration}.
+ */
+class SecondLevelCacheConfigurationTest {
+    DataSource dataSource = JpaTestDatabase.dataSource("secondlevelcache");
+    SessionFactory sessionFactory;
+    Statistics statistics;
+    TransactionTemplate transactionTemplate;
+    RoleRepository roleRepository;
+    AuthorityRepository authorityRepository;
+
+    @BeforeEach
+    void setUp() {
+        JpaTestDatabase.migrate(dataSource);
+        sessionFactory = JpaTestDatabase.sessionFactory(JpaTestDatabase.registry(dataSource)
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, "true")
+                .applySettings(SecondLevelCacheConfiguration.hibernateProperties(100, Duration.ofMinutes(10))));
+        statistics = sessionFactory.getStatistics();
+
+        JpaTransactionManager transactionManager = JpaTestDatabase.transactionManager(sessionFactory);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        JpaRepositoryFactory repositoryFactory = JpaTestDatabase.repositories(sessionFactory, transactionManager);
+        roleRepository = repositoryFactory.getRepository(RoleRepository.class);
+        authorityRepository = repositoryFactory.getRepository(AuthorityRepository.class);
+
+        RoleEntity role = new RoleEntity("ROLE_USER");
+        role.setAuthorities(new HashSet<>(Arrays.asList(
+                new AuthorityEntity("READ_AUTHORITY"), new AuthorityEntity("WRITE_AUTHORITY"))));
+        roleRepository.save(role);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        JpaTestDatabase.drop(dataSource);
+    }
+
+    private Set<String> authorityNames(String roleName) {
+        return transactionTemplate.execute(status -> roleRepository.findByName(roleName).getAuthorities().stream()
+                .map(AuthorityEntity::getName)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void findByName_servesRepeatedLookupsFromTheQueryCache() {
+        //given
+        roleRepository.findByName("ROLE_USER");
+        authorityRepository.findByName("READ_AUTHORITY");
+        statistics.clear();
+        //when
+        RoleEntity role = roleRepository.findByName("ROLE_USER");
+        AuthorityEntity authority = authorityRepository.findByName("READ_AUTHORITY");
+        //then
+        Assertions.assertEquals("ROLE_USER", role.getName());
+        Assertions.assertEquals("READ_AUTHORITY", authority.getName());
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(2, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void roleAuthorities_areServedFromTheCollectionCache() {
+        //given
+        authorityNames("ROLE_USER");
+        statistics.clear();
+        //when
+        Set<String> authorities = authorityNames("ROLE_USER");
+        //then
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("READ_AUTHORITY", "WRITE_AUTHORITY")), authorities);
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void writesThroughHibernate_evictCachedQueriesAndCollections() {
+        //given
+        Assertions.assertNull(roleRepository.findByName("ROLE_ADMIN"));
+        authorityNames("ROLE_USER");
+        //when
+        roleRepository.save(new RoleEntity("ROLE_ADMIN"));
+        transactionTemplate.executeWithoutResult(status -> {
+            RoleEntity role = roleRepository.findByName("ROLE_USER");
+            role.getAuthorities().add(authorityRepository.save(new AuthorityEntity("DELETE_AUTHORITY")));
+        });
+        //then
+        Assertions.assertNotNull(roleRepository.findByName("ROLE_ADMIN"));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("READ_AUTHORITY", "WRITE_AUTHORITY", "DELETE_AUTHORITY")),
+                authorityNames("ROLE_USER"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.learningplatform.webapp.security.cache;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.token.JwtCodec;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTest {
+
+    @Mock
+    AppProperties appProperties;
+
+    VerifiedTokenCache verifiedTokenCache;
+
+    String secret = "jf9i4jgu83nfl0dfg";
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.getTokenSecret()).thenReturn(secret);
+        when(appProperties.getTokenSecrets()).thenReturn(Collections.emptyMap());
+        when(appProperties.getTokenSigningKeyId()).thenReturn(JwtCodec.DEFAULT_KEY_ID);
+        when(appProperties.getTokenCacheMaxSize()).thenReturn(100L);
+        when(appProperties.getTokenCacheMaxTtlSeconds()).thenReturn(3600L);
+
+        verifiedTokenCache = new VerifiedTokenCache(new JwtCodec(appProperties), appProperties);
+    }
+
+    @Test
+    void parse_servesRepeatedTokenFromCache() {
+        //given
+        String token = token("john@mail.com", secret, 60_000);
+        //when
+        Claims first = verifiedTokenCache.parse(token);
+        Claims second = verifiedTokenCache.parse(token);
+        //then
+        Assertions.assertEquals("john@mail.com", first.getSubject());
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, verifiedTokenCache.getStats().hitCount());
+    }
+
+    @Test
+    void parse_rejectsTamperedToken() {
+        //given
+        String token = token("john@mail.com", secret, 60_000);
+        verifiedTokenCache.parse(token);
+        String forged = token("john@mail.com", "otherSecret", 60_000);
+        //then
+        Assertions.assertThrows(SignatureException.class, () -> verifiedTokenCache.parse(forged));
+    }
+
+    @Test
+    void parse_throwsExpiredJwtException() {
+        //given
+        String token = token("john@mail.com", secret, -1_000);
+        //then
+        Assertions.assertThrows(ExpiredJwtException.class, () -> verifiedTokenCache.parse(token));
+    }
+
+    @Test
+    void parse_returnsReadOnlyClaims() {
+        //given
+        Claims claims = verifiedTokenCache.parse(token("john@mail.com", secret, 60_000));
+        //then
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> claims.setSubject("admin@mail.com"));
+    }
+
+    private String token(String subject, String signingSecret, long validForMillis) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .setExpiration(new Date(System.currentTimeMillis() + validForMillis))
+                .signWith(SignatureAlgorithm.HS512, signingSecret)
+                .compact();
+    }
+}
@@ -0,0 +1,86 @@
+package com.learningplatform.webapp.security.concurrent;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.when;
+
+class ThreadingConfigurationTest {
+
+    @Mock
+    AppProperties appProperties;
+
+    ThreadingConfiguration threadingConfiguration;
+
+    Authentication authentication = new UsernamePasswordAuthenticationToken("john@mail.com", null,
+            Collections.emptyList());
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        if (threadingConfiguration != null) threadingConfiguration.shutdown();
+    }
+
+    @Test
+    void taskExecutor_propagatesSecurityContextOnPlatformThreads() throws Exception {
+        //given
+        when(appProperties.isVirtualThreadsEnabled()).thenReturn(false);
+        threadingConfiguration = new ThreadingConfiguration(appProperties);
+        AsyncTaskExecutor taskExecutor = threadingConfiguration.taskExecutor(new TaskExecutorBuilder());
+        //when
+        Authentication seen = taskExecutor
+                .submit(() -> SecurityContextHolder.getContext().getAuthentication())
+                .get(5, TimeUnit.SECONDS);
+        //then
+        Assertions.assertSame(authentication, seen);
+    }
+
+    @Test
+    void taskExecutor_propagatesSecurityContextOnVirtualThreads() throws Exception {
+        Assumptions.assumeTrue(VirtualThreads.isSupported());
+        //given
+        when(appProperties.isVirtualThreadsEnabled()).thenReturn(true);
+        threadingConfiguration = new ThreadingConfiguration(appProperties);
+        AsyncTaskExecutor taskExecutor = threadingConfiguration.taskExecutor(new TaskExecutorBuilder());
+        //when
+        Authentication seen = taskExecutor
+                .submit(() -> SecurityContextHolder.getContext().getAuthentication())
+                .get(5, TimeUnit.SECONDS);
+        Boolean virtual = taskExecutor
+                .submit(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get(5, TimeUnit.SECONDS);
+        //then
+        Assertions.assertSame(authentication, seen);
+        Assertions.assertTrue(virtual);
+    }
+
+    @Test
+    void virtualThreads_failFastOnOlderJava() {
+        Assumptions.assumeFalse(VirtualThreads.isSupported());
+        //given
+        when(appProperties.isVirtualThreadsEnabled()).thenReturn(true);
+        //then
+        Assertions.assertThrows(IllegalStateException.class, () -> new ThreadingConfiguration(appProperties));
+        Assertions.assertThrows(IllegalStateException.class, () -> VirtualThreads.threadFactory("test-"));
+    }
+}
@@ -0,0 +1,30 @@
+package com.learningplatform.webapp.security.crypto;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BCryptStrengthCalibratorTest {
+
+    @Test
+    void calibrate_staysAtMinimumWhenTargetIsTooLow() {
+        Assertions.assertEquals(5, BCryptStrengthCalibrator.calibrate(0, 5, 7));
+    }
+
+    @Test
+    void calibrate_capsAtMaximumWhenTargetIsGenerous() {
+        Assertions.assertEquals(7, BCryptStrengthCalibrator.calibrate(60_000, 5, 7));
+    }
+
+    @Test
+    void calibrate_rejectsInvalidBounds() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BCryptStrengthCalibrator.calibrate(100, 8, 6));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BCryptStrengthCalibrator.calibrate(100, 3, 6));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BCryptStrengthCalibrator.calibrate(100, 10, 32));
+    }
+
+    @Test
+    void estimate_doublesPerStrengthStep() {
+        Assertions.assertEquals(40.0, BCryptStrengthCalibrator.estimate(10.0, 10));
+        Assertions.assertEquals(5.0, BCryptStrengthCalibrator.estimate(10.0, 7));
+    }
+}
@@ -0,0 +1,40 @@
+package com.learningplatform.webapp.security.crypto;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+class PasswordEncoderConfigurationTest {
+
+    private final DelegatingPasswordEncoder passwordEncoder = PasswordEncoderConfiguration.delegatingPasswordEncoder(5);
+
+    @Test
+    void encode_recordsAlgorithmAndStrength() {
+        //when
+        String encoded = passwordEncoder.encode("secret");
+        //then
+        Assertions.assertTrue(encoded.startsWith("{bcrypt}$2a$05$"));
+        Assertions.assertTrue(passwordEncoder.matches("secret", encoded));
+        Assertions.assertFalse(passwordEncoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    void legacyHash_matchesAndNeedsUpgrade() {
+        //given
+        String legacy = new BCryptPasswordEncoder(5).encode("secret");
+        //then
+        Assertions.assertTrue(passwordEncoder.matches("secret", legacy));
+        Assertions.assertFalse(passwordEncoder.matches("wrong", legacy));
+        Assertions.assertTrue(passwordEncoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    void weakerHash_needsUpgrade() {
+        //given
+        String weaker = PasswordEncoderConfiguration.delegatingPasswordEncoder(4).encode("secret");
+        //then
+        Assertions.assertTrue(passwordEncoder.matches("secret", weaker));
+        Assertions.assertTrue(passwordEncoder.upgradeEncoding(weaker));
+    }
+}
@@ -0,0 +1,93 @@
+package com.learningplatform.webapp.security.crypto;
+
+import com.learningplatform.webapp.security.exceptions.PasswordHashingRejectedException;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+class PasswordHashingExecutorTest {
+
+    @Mock
+    AppProperties appProperties;
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.getPasswordHashingThreads()).thenReturn(1);
+        when(appProperties.getPasswordHashingQueueCapacity()).thenReturn(1);
+        when(appProperties.getPasswordHashingRetryAfterSeconds()).thenReturn(2L);
+        executor = new PasswordHashingExecutor(appProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_runsTaskOnPoolAndRecordsQueueWait() {
+        //when
+        String threadName = executor.execute(() -> Thread.currentThread().getName());
+        //then
+        Assertions.assertTrue(threadName.startsWith("password-hash-"));
+        Assertions.assertEquals(1, meterRegistry.get("password.hashing.queue.wait").timer().count());
+    }
+
+    @Test
+    void execute_rethrowsTaskException() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> executor.execute(() -> {
+            throw new IllegalArgumentException("bad hash");
+        }));
+    }
+
+    @Test
+    void execute_rejectsWhenQueueIsFull() throws Exception {
+        //given
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> executor.execute(() -> {
+            running.countDown();
+            await(release);
+            return "busy";
+        }));
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> executor.execute(() -> "queued"));
+        while (meterRegistry.get("executor.queued").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+        //when
+        PasswordHashingRejectedException rejected = Assertions.assertThrows(PasswordHashingRejectedException.class,
+                () -> executor.execute(() -> "rejected"));
+        release.countDown();
+        //then
+        Assertions.assertEquals(2L, rejected.getRetryAfterSeconds());
+        Assertions.assertEquals(1, meterRegistry.get("password.hashing.rejected").counter().count());
+        Assertions.assertEquals("busy", busy.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
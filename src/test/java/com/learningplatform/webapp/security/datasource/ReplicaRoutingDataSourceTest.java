@@ -0,0 +1,147 @@
+package com.learningplatform.webapp.security.datasource;
+
+import com.learningplatform.webapp.security.model.JpaTestDatabase;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Routes JPA transactions between three embedded databases, a primary and two replicas migrated with the Flyway
+ * scripts, and asks each connection which database it belongs to.
+ */
+class ReplicaRoutingDataSourceTest {
+    private static final String PRIMARY = "routing_primary";
+    private static final String REPLICA_A = "routing_replica_a";
+    private static final String REPLICA_B = "routing_replica_b";
+    private static final String WRITER = "writer@test.com";
+
+    DataSource primary = JpaTestDatabase.dataSource(PRIMARY);
+    DataSource replicaA = JpaTestDatabase.dataSource(REPLICA_A);
+    DataSource replicaB = JpaTestDatabase.dataSource(REPLICA_B);
+    ReadYourWritesWindow readYourWritesWindow;
+    SessionFactory sessionFactory;
+    EntityManager entityManager;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+    UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (DataSource dataSource : Arrays.asList(primary, replicaA, replicaB)) {
+            JpaTestDatabase.migrate(dataSource);
+        }
+
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.getReadYourWritesMaxAccounts()).thenReturn(100L);
+        when(appProperties.getReadYourWritesWindowSeconds()).thenReturn(60L);
+        readYourWritesWindow = new ReadYourWritesWindow(appProperties);
+
+        DataSource routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replicaA, replicaB),
+                readYourWritesWindow::isOpen);
+
+        sessionFactory = JpaTestDatabase.sessionFactory(JpaTestDatabase.registry(routingDataSource)
+                .applySetting(AvailableSettings.CONNECTION_HANDLING,
+                        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION));
+
+        JpaTransactionManager transactionManager = JpaTestDatabase.transactionManager(sessionFactory);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(sessionFactory);
+
+        userRepository = JpaTestDatabase.repositories(sessionFactory, transactionManager)
+                .getRepository(UserRepository.class);
+
+        // Replication lag: the account exists on the primary only
+        new JdbcTemplate(primary).update("insert into users (id, user_id, first_name, last_name, email,"
+                + " email_verification_status) values (1, 'writer', 'First', 'Last', ?, true)", WRITER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        sessionFactory.close();
+        for (DataSource dataSource : Arrays.asList(primary, replicaA, replicaB)) {
+            JpaTestDatabase.drop(dataSource);
+        }
+    }
+
+    private String database() {
+        return (String) entityManager.createNativeQuery("select database()").getSingleResult();
+    }
+
+    @Test
+    void readOnlyTransactions_takeTheReplicasInTurn() {
+        //when
+        String first = readOnly.execute(status -> database());
+        String second = readOnly.execute(status -> database());
+        String third = readOnly.execute(status -> database());
+        //then
+        Assertions.assertEquals(REPLICA_A, first);
+        Assertions.assertEquals(REPLICA_B, second);
+        Assertions.assertEquals(REPLICA_A, third);
+    }
+
+    @Test
+    void readWriteTransactions_andReadsOutsideTransactions_goToThePrimary() {
+        //when
+        String inTransaction = readWrite.execute(status -> database());
+        //then
+        Assertions.assertEquals(PRIMARY, inTransaction);
+        Assertions.assertNotNull(userRepository.findByEmail(WRITER));
+    }
+
+    @Test
+    void readOnlyRepositoryLookup_isServedByAReplica() {
+        //when
+        UserEntity userEntity = userRepository.findWithAuthoritiesByEmail(WRITER);
+        //then
+        Assertions.assertNull(userEntity);
+    }
+
+    @Test
+    void readYourWritesWindow_keepsTheWritersReadsOnThePrimary() {
+        //given
+        readWrite.executeWithoutResult(status -> readYourWritesWindow.recordWrite(WRITER));
+        //when
+        UserEntity writerLookup = ReadYourWritesWindow.readingAs(WRITER,
+                () -> userRepository.findWithAuthoritiesByEmail(WRITER));
+        String otherAccountDatabase = ReadYourWritesWindow.readingAs("other@test.com",
+                () -> readOnly.execute(status -> database()));
+        //then
+        Assertions.assertNotNull(writerLookup);
+        Assertions.assertNotEquals(PRIMARY, otherAccountDatabase);
+    }
+
+    @Test
+    void readYourWritesWindow_followsTheAuthenticatedUser() {
+        //given
+        readYourWritesWindow.recordWrite(WRITER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(WRITER, null, Collections.emptyList()));
+        //when
+        String database = readOnly.execute(status -> database());
+        //then
+        Assertions.assertEquals(PRIMARY, database);
+    }
+}
@@ -0,0 +1,281 @@
+package com.learningplatform.webapp.security.logic.serviceImpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningplatform.webapp.security.mail.EmailOutbox;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.RoleRepository;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.model.request.BulkFormat;
+import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import com.learningplatform.webapp.security.model.response.BulkImportRowResultModel;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import com.learningplatform.webapp.security.shared.Utils;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserBulkServiceImplTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    RoleRepository roleRepository;
+
+    @Mock
+    Utils utils;
+
+    @Mock
+    DelegatingPasswordEncoder passwordEncoder;
+
+    @Mock
+    EmailOutbox emailOutbox;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    AppProperties appProperties;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    UserBulkServiceImpl userBulkService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        RoleEntity role = new RoleEntity();
+        role.setId(1L);
+        role.setName("ROLE_USER");
+
+        when(appProperties.getBulkImportChunkSize()).thenReturn(2);
+        when(appProperties.getBulkImportHashingThreads()).thenReturn(2);
+        when(appProperties.getBulkExportFetchSize()).thenReturn(2);
+        when(roleRepository.findByName("ROLE_USER")).thenReturn(role);
+        when(entityManager.getReference(RoleEntity.class, 1L)).thenReturn(role);
+        when(utils.generateUserId(anyInt())).thenReturn("asf23");
+        when(utils.generateEmailVerificationToken(anyString())).thenReturn("sfdg43rfsg");
+        when(passwordEncoder.encode(anyString())).thenReturn("asdf234fdh13we");
+        when(userRepository.findEmailsIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        userBulkService = new UserBulkServiceImpl(userRepository, roleRepository, utils, passwordEncoder,
+                emailOutbox, entityManager, transactionManager, objectMapper, appProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userBulkService.shutdown();
+    }
+
+    @Test
+    void importUsers_ndjsonReportsEveryRow() throws Exception {
+        //given
+        when(userRepository.findEmailsIn(anyCollection())).thenReturn(Collections.singletonList("sarah@mail.com"));
+        String input = "{\"firstName\":\"John\",\"lastName\":\"Connor\",\"email\":\"johnny@mail.com\",\"password\":\"123\"}\n"
+                + "{\"firstName\":\"Sarah\",\"lastName\":\"Connor\",\"email\":\"sarah@mail.com\",\"password\":\"123\"}\n"
+                + "{not json\n";
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input, BulkFormat.NDJSON);
+        //then
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("SUCCESS", results.get(0).getOperationResult());
+        Assertions.assertEquals("asf23", results.get(0).getUserId());
+        Assertions.assertEquals("ERROR", results.get(1).getOperationResult());
+        Assertions.assertEquals("Record already exists", results.get(1).getMessage());
+        Assertions.assertEquals(3, results.get(2).getRow());
+        Assertions.assertEquals("ERROR", results.get(2).getOperationResult());
+        verify(userRepository, times(1)).save(any(UserEntity.class));
+        verify(emailOutbox, times(1)).enqueueVerificationEmail(any(UserEntity.class));
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void importUsers_csvHandlesQuotedFieldsAndDuplicates() throws Exception {
+        //given
+        String input = "email,firstName,lastName,password\n"
+                + "johnny@mail.com,\"John, \"\"Jr\"\"\",Connor,123\n"
+                + "johnny@mail.com,John,Connor,123\n";
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input, BulkFormat.CSV);
+        //then
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals(2, results.get(0).getRow());
+        Assertions.assertEquals("SUCCESS", results.get(0).getOperationResult());
+        Assertions.assertEquals("Duplicate email in file", results.get(1).getMessage());
+        verify(userRepository).save(argThat(user -> "John, \"Jr\"".equals(user.getFirstName())));
+    }
+
+    @Test
+    void importUsers_reportsNullNdjsonRowAsMalformed() throws Exception {
+        //given
+        String input = "null\n"
+                + "{\"firstName\":\"John\",\"lastName\":\"Connor\",\"email\":\"johnny@mail.com\",\"password\":\"123\"}\n";
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input, BulkFormat.NDJSON);
+        //then
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("ERROR", results.get(0).getOperationResult());
+        Assertions.assertTrue(results.get(0).getMessage().startsWith("Malformed row"));
+        Assertions.assertEquals("SUCCESS", results.get(1).getOperationResult());
+    }
+
+    @Test
+    void importUsers_comparesEmailsIgnoringCase() throws Exception {
+        //given
+        when(userRepository.findEmailsIn(anyCollection())).thenReturn(Collections.singletonList("Sarah@Mail.com"));
+        String input = "firstName,lastName,email,password\n"
+                + "John,Connor,johnny@mail.com,123\n"
+                + "John,Connor,Johnny@MAIL.com,123\n"
+                + "Sarah,Connor,sarah@mail.com,123\n";
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input, BulkFormat.CSV);
+        //then
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("SUCCESS", results.get(0).getOperationResult());
+        Assertions.assertEquals("Duplicate email in file", results.get(1).getMessage());
+        Assertions.assertEquals("Record already exists", results.get(2).getMessage());
+        verify(userRepository).findEmailsIn(argThat(emails -> emails.contains("johnny@mail.com")));
+    }
+
+    @Test
+    void importUsers_storesTrimmedEmail() throws Exception {
+        //given
+        String input = "firstName,lastName,email,password\n"
+                + "Alice,Smith, Alice@mail.com ,123\n"
+                + "Alice,Smith,alice@mail.com,123\n";
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input, BulkFormat.CSV);
+        //then
+        Assertions.assertEquals("SUCCESS", results.get(0).getOperationResult());
+        Assertions.assertEquals("Duplicate email in file", results.get(1).getMessage());
+        verify(userRepository).save(argThat(user -> "Alice@mail.com".equals(user.getEmail())));
+    }
+
+    @Test
+    void importUsers_processesInputInChunks() throws Exception {
+        //given
+        StringBuilder input = new StringBuilder("firstName,lastName,email,password\n");
+        for (int i = 0; i < 5; i++) {
+            input.append("John,Connor,johnny").append(i).append("@mail.com,123\n");
+        }
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input.toString(), BulkFormat.CSV);
+        //then
+        Assertions.assertEquals(5, results.size());
+        verify(userRepository, times(3)).findEmailsIn(anyCollection());
+        verify(roleRepository, times(1)).findByName("ROLE_USER");
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void importUsers_reportsWholeChunkWhenCommitFails() throws Exception {
+        //given
+        when(userRepository.save(any(UserEntity.class))).thenThrow(new IllegalStateException("Duplicate entry"));
+        String input = "firstName,lastName,email,password\n"
+                + "John,Connor,johnny@mail.com,123\n"
+                + "Sarah,Connor,sarah@mail.com,123\n";
+        //when
+        List<BulkImportRowResultModel> results = importUsers(input, BulkFormat.CSV);
+        //then
+        Assertions.assertEquals(2, results.size());
+        results.forEach(result -> Assertions.assertEquals("Could not create record", result.getMessage()));
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void importUsers_rejectsCsvWithoutRequiredColumns() throws Exception {
+        //when
+        List<BulkImportRowResultModel> results = importUsers("email,password\njohnny@mail.com,123\n",
+                BulkFormat.CSV);
+        //then
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertEquals("ERROR", results.get(0).getOperationResult());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void exportUsers_streamsRowsFromForwardOnlyCursor() throws Exception {
+        //given
+        ScrollableResults rows = scroll(new Object[]{"asf23", "John", "Connor", "johnny@mail.com"},
+                new Object[]{"qwe45", "Sarah", "O\"Connor, Jr", "sarah@mail.com"});
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        //when
+        userBulkService.exportUsers(BulkFormat.CSV, output);
+        //then
+        Assertions.assertEquals("userId,firstName,lastName,email\n"
+                        + "asf23,John,Connor,johnny@mail.com\n"
+                        + "qwe45,Sarah,\"O\"\"Connor, Jr\",sarah@mail.com\n",
+                output.toString(StandardCharsets.UTF_8.name()));
+        verify(rows, times(1)).close();
+    }
+
+    @Test
+    void exportUsers_writesNdjson() throws Exception {
+        //given
+        scroll(new Object[]{"asf23", "John", "Connor", "johnny@mail.com"});
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        //when
+        userBulkService.exportUsers(BulkFormat.NDJSON, output);
+        //then
+        UserDetailsResponseModel user = objectMapper.readValue(output.toString(StandardCharsets.UTF_8.name()).trim(),
+                UserDetailsResponseModel.class);
+        Assertions.assertEquals("asf23", user.getUserId());
+        Assertions.assertEquals("johnny@mail.com", user.getEmail());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScrollableResults scroll(Object[]... values) {
+        Session session = mock(Session.class);
+        Query<Object[]> query = mock(Query.class, RETURNS_SELF);
+        ScrollableResults rows = mock(ScrollableResults.class);
+
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
+        when(query.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(rows);
+
+        AtomicInteger position = new AtomicInteger(-1);
+        when(rows.next()).thenAnswer(invocation -> position.incrementAndGet() < values.length);
+        when(rows.get()).thenAnswer(invocation -> values[position.get()]);
+        return rows;
+    }
+
+    private List<BulkImportRowResultModel> importUsers(String input, BulkFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        userBulkService.importUsers(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format, output);
+
+        List<BulkImportRowResultModel> results = new ArrayList<>();
+        for (String line : Arrays.asList(output.toString(StandardCharsets.UTF_8.name()).split("\n"))) {
+            if (!line.isEmpty()) {
+                results.add(objectMapper.readValue(line, BulkImportRowResultModel.class));
+            }
+        }
+        return results;
+    }
+}
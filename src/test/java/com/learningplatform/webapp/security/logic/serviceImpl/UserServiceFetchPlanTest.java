@@ -0,0 +1,190 @@
+package com.learningplatform.webapp.security.logic.serviceImpl;
+
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.SecondLevelCacheConfiguration;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.datasource.ReadYourWritesWindow;
+import com.learningplatform.webapp.security.logic.service.UserService;
+import com.learningplatform.webapp.security.mail.EmailOutbox;
+import com.learningplatform.webapp.security.model.JpaTestDatabase;
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
+import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.PasswordResetTokenRepository;
+import com.learningplatform.webapp.security.model.repository.RoleRepository;
+import com.learningplatform.webapp.security.model.repository.UserRepository;
+import com.learningplatform.webapp.security.shared.Utils;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Counts the SQL statements each user use case issues, with Hibernate statistics, against the Flyway schema.
+ * Repositories and the service run behind the same transaction proxies as in the application, on a shared
+ * entity manager and without open-in-view, so a fetch plan that misses an association fails with a lazy
+ * loading error instead of adding statements.
+ */
+class UserServiceFetchPlanTest {
+    private static final int USERS = 12;
+
+    DataSource dataSource = JpaTestDatabase.dataSource("fetchplans");
+    SessionFactory sessionFactory;
+    Statistics statistics;
+    TransactionTemplate transactionTemplate;
+    Utils utils = mock(Utils.class);
+    PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordEncoder.encode(anyString())).thenReturn("encryptedPassword");
+        JpaTestDatabase.migrate(dataSource);
+        sessionFactory = JpaTestDatabase.sessionFactory(JpaTestDatabase.registry(dataSource)
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, "true")
+                .applySettings(SecondLevelCacheConfiguration.hibernateProperties(100, Duration.ofMinutes(10))));
+        statistics = sessionFactory.getStatistics();
+
+        JpaTransactionManager transactionManager = JpaTestDatabase.transactionManager(sessionFactory);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        JpaRepositoryFactory repositoryFactory = JpaTestDatabase.repositories(sessionFactory, transactionManager);
+
+        UserServiceImpl target = new UserServiceImpl(repositoryFactory.getRepository(UserRepository.class), utils,
+                passwordEncoder, mock(EmailOutbox.class),
+                repositoryFactory.getRepository(PasswordResetTokenRepository.class),
+                repositoryFactory.getRepository(RoleRepository.class), mock(PrincipalCache.class),
+                mock(TokenVersionCache.class), mock(ReadYourWritesWindow.class), mock(TokenRevocationList.class),
+                transactionManager, new SimpleMeterRegistry());
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(JpaTestDatabase.transactionInterceptor(transactionManager));
+        userService = (UserService) proxyFactory.getProxy();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(sessionFactory);
+        transactionTemplate.executeWithoutResult(status -> seed(entityManager));
+    }
+
+    private void seed(EntityManager entityManager) {
+        AuthorityEntity read = new AuthorityEntity("READ_AUTHORITY");
+        AuthorityEntity write = new AuthorityEntity("WRITE_AUTHORITY");
+        RoleEntity role = new RoleEntity("ROLE_USER");
+        role.setAuthorities(new HashSet<>(Arrays.asList(read, write)));
+        entityManager.persist(role);
+
+        for (int i = 0; i < USERS; i++) {
+            UserEntity userEntity = new UserEntity();
+            userEntity.setUserId("user" + i);
+            userEntity.setFirstName("First" + i);
+            userEntity.setLastName("Last" + i);
+            userEntity.setEmail("user" + i + "@test.com");
+            userEntity.setEncryptedPassword("password");
+            userEntity.setEmailVerificationStatus(true);
+            userEntity.setRoles(Collections.singletonList(role));
+            entityManager.persist(userEntity);
+
+            PasswordResetTokenEntity passwordResetTokenEntity = new PasswordResetTokenEntity();
+            passwordResetTokenEntity.setToken("token" + i);
+            passwordResetTokenEntity.setUserEntity(userEntity);
+            entityManager.persist(passwordResetTokenEntity);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        JpaTestDatabase.drop(dataSource);
+    }
+
+    private <T> T countingStatements(long expected, Supplier<T> useCase) {
+        statistics.clear();
+        T returnValue = useCase.get();
+        Assertions.assertEquals(expected, statistics.getPrepareStatementCount(),
+                () -> "SQL statements: " + Arrays.toString(statistics.getQueries()));
+        return returnValue;
+    }
+
+    @Test
+    void authentication_loadsUserRolesAndAuthoritiesInOneStatement() {
+        //when
+        UserPrincipal principal = countingStatements(1,
+                () -> (UserPrincipal) userService.loadUserByUsername("user3@test.com"));
+        //then
+        Assertions.assertEquals(3, principal.getAuthorities().size());
+    }
+
+    @Test
+    void profileRead_loadsUserAndRolesInOneStatement() {
+        //when
+        UserDto byUserId = countingStatements(1, () -> userService.getUserByUserId("user3"));
+        UserDto byEmail = countingStatements(1, () -> userService.getUser("user3@test.com"));
+        //then
+        Assertions.assertEquals(Collections.singletonList("ROLE_USER"), byUserId.getRoles());
+        Assertions.assertEquals(Collections.singletonList("ROLE_USER"), byEmail.getRoles());
+    }
+
+    @Test
+    void listing_loadsRolesOfThePageInOneBatch() {
+        //when
+        List<UserDto> page = countingStatements(3, () -> userService.getUsers(0, 5));
+        UserPageDto cursorPage = countingStatements(2, () -> userService.getUsers("", 5));
+        //then
+        Assertions.assertEquals(5, page.size());
+        Assertions.assertEquals(5, cursorPage.getUsers().size());
+        page.forEach(userDto -> Assertions.assertEquals(Collections.singletonList("ROLE_USER"), userDto.getRoles()));
+    }
+
+    @Test
+    void passwordReset_loadsTokenWithUserAndWritesBothInPlace() {
+        //given
+        when(utils.hasTokenExpired("token3")).thenReturn(false);
+        //when
+        boolean result = countingStatements(3, () -> userService.resetPassword("token3", "newPassword"));
+        //then
+        Assertions.assertTrue(result);
+    }
+
+    @Test
+    void readOnlyUseCases_skipTheFlushAtCommit() {
+        //when
+        statistics.clear();
+        userService.loadUserByUsername("user3@test.com");
+        userService.getUser("user3@test.com");
+        userService.getUserByUserId("user3");
+        userService.getUsers(0, 5);
+        userService.getUsers("", 5);
+        long readOnlyFlushes = statistics.getFlushCount();
+
+        UserDto update = new UserDto();
+        update.setFirstName("Changed");
+        update.setLastName("Name");
+        userService.updateUser("user3", update);
+        //then
+        Assertions.assertEquals(0, readOnlyFlushes);
+        Assertions.assertEquals(1, statistics.getFlushCount());
+    }
+}
@@ -1,23 +1,39 @@
 package com.learningplatform.webapp.security.logic.serviceImpl;
 
-import com.learningplatform.webapp.security.mail.EmailSender;
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.cache.PrincipalCache;
+import com.learningplatform.webapp.security.cache.TokenVersionCache;
+import com.learningplatform.webapp.security.datasource.ReadYourWritesWindow;
+import com.learningplatform.webapp.security.mail.EmailOutbox;
+import com.learningplatform.webapp.security.exceptions.UserServiceException;
 import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.dto.UserPageDto;
+import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
 import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.repository.PasswordResetTokenRepository;
 import com.learningplatform.webapp.security.model.repository.UserRepository;
 import com.learningplatform.webapp.security.shared.Utils;
+import com.learningplatform.webapp.security.token.TokenRevocationList;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import javax.mail.MessagingException;
-import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -37,7 +53,28 @@ class UserServiceImplTest {
     BCryptPasswordEncoder bCryptPasswordEncoder;
 
     @Mock
-    EmailSender emailSender;
+    EmailOutbox emailOutbox;
+
+    @Mock
+    PrincipalCache principalCache;
+
+    @Mock
+    TokenVersionCache tokenVersionCache;
+
+    @Mock
+    ReadYourWritesWindow readYourWritesWindow;
+
+    @Mock
+    TokenRevocationList tokenRevocationList;
+
+    @Mock
+    PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Spy
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     private final ModelMapper modelMapper = new ModelMapper();
 
@@ -67,7 +104,7 @@ class UserServiceImplTest {
     }
 
     @Test
-    void createUser() throws MessagingException, UnsupportedEncodingException {
+    void createUser() {
         //given
         UserDto userDto = new UserDto();
         userDto.setFirstName("sdfg");
@@ -85,7 +122,6 @@ class UserServiceImplTest {
         when(utils.generateEmailVerificationToken(String.valueOf(anyInt()))).thenReturn(emailVerificationToken);
         when(bCryptPasswordEncoder.encode(anyString())).thenReturn(encryptedPassword);
         when(userRepository.save(any(UserEntity.class))).thenReturn(expected);
-        Mockito.doNothing().when(emailSender).sendVerificationEmail(any(UserEntity.class), anyString());
         //then
         UserDto returnValue = userService.createUser(userDto);
 
@@ -102,21 +138,46 @@ class UserServiceImplTest {
         verify(utils, times(1)).generateUserId(anyInt());
         verify(utils, times(1)).generateEmailVerificationToken(anyString());
         verify(bCryptPasswordEncoder, times(1)).encode(userDto.getPassword());
+        verify(emailOutbox, times(1)).enqueueVerificationEmail(expected);
+        Assertions.assertEquals(1,
+                meterRegistry.get("security.password.hash").tag("method", "createUser").timer().count());
+    }
+
+    @Test
+    void createUser_hashesPasswordBeforeTransactionOpens() {
+        //given
+        UserDto userDto = new UserDto();
+        userDto.setEmail("mail@to.pl");
+        userDto.setPassword("123");
+        //when
+        when(bCryptPasswordEncoder.encode(anyString())).thenReturn(encryptedPassword);
+        when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
+        userService.createUser(userDto);
+        //then
+        InOrder inOrder = inOrder(bCryptPasswordEncoder, transactionManager, userRepository);
+        inOrder.verify(bCryptPasswordEncoder).encode("123");
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userRepository).save(any(UserEntity.class));
+        inOrder.verify(transactionManager).commit(any());
     }
 
     @Test
     void createUser_throwsRuntimeException() {
+        //given
+        UserDto userDto = new UserDto();
+        userDto.setEmail(email);
         //when
         when(userRepository.findByEmail(anyString())).thenReturn(userEntity);
         //then
-        Assertions.assertThrows(RuntimeException.class, () -> userService.createUser(new UserDto()));
+        Assertions.assertThrows(RuntimeException.class, () -> userService.createUser(userDto));
+        verify(userRepository, never()).save(any(UserEntity.class));
     }
 
     @Test
     void getUser_throwsUsernameNotFoundException() {
         //given
         //when
-        when(userRepository.findByEmail(anyString())).thenReturn(null);
+        when(userRepository.findWithRolesByEmail(anyString())).thenReturn(null);
         //then
         Assertions.assertThrows(UsernameNotFoundException.class, () -> userService.getUser("anyEmail@com.pl"));
     }
@@ -125,7 +186,7 @@ class UserServiceImplTest {
     void getUser() {
         //given
         //when
-        when(userRepository.findByEmail("test@mail.com")).thenReturn(userEntity);
+        when(userRepository.findWithRolesByEmail("test@mail.com")).thenReturn(userEntity);
         UserDto userDto = userService.getUser("test@mail.com");
 
         //then
@@ -133,4 +194,136 @@ class UserServiceImplTest {
         Assertions.assertEquals("John", userDto.getFirstName());
     }
 
-}
\ No newline at end of file
+    @Test
+    void updateUser_evictsCachedPrincipal() {
+        //given
+        UserDto userDto = new UserDto();
+        userDto.setFirstName("Kyle");
+        userDto.setLastName("Reese");
+        //when
+        when(userRepository.findByUserId(userId)).thenReturn(userEntity);
+        when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
+        UserDto updated = userService.updateUser(userId, userDto);
+        //then
+        Assertions.assertEquals("Kyle", updated.getFirstName());
+        verify(principalCache, times(1)).evict(email);
+    }
+
+    @Test
+    void deleteUser_evictsCachedPrincipal() {
+        //when
+        when(userRepository.findByUserId(userId)).thenReturn(userEntity);
+        userService.deleteUser(userId);
+        //then
+        verify(userRepository, times(1)).delete(userEntity);
+        verify(principalCache, times(1)).evict(email);
+    }
+
+    @Test
+    void resetPassword_revokesIssuedTokens() {
+        //given
+        String token = "resetToken";
+        userEntity.setTokenVersion(3L);
+        PasswordResetTokenEntity passwordResetTokenEntity = new PasswordResetTokenEntity();
+        passwordResetTokenEntity.setToken(token);
+        passwordResetTokenEntity.setUserEntity(userEntity);
+        //when
+        when(utils.hasTokenExpired(token)).thenReturn(false);
+        when(passwordResetTokenRepository.findByToken(token)).thenReturn(passwordResetTokenEntity);
+        when(bCryptPasswordEncoder.encode(anyString())).thenReturn(encryptedPassword);
+        when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
+        boolean result = userService.resetPassword(token, "newPassword");
+        //then
+        Assertions.assertTrue(result);
+        Assertions.assertEquals(4L, userEntity.getTokenVersion());
+        verify(tokenVersionCache, times(1)).evict(userId);
+        verify(passwordResetTokenRepository, times(1)).delete(passwordResetTokenEntity);
+        InOrder inOrder = inOrder(bCryptPasswordEncoder, transactionManager, passwordResetTokenRepository);
+        inOrder.verify(bCryptPasswordEncoder).encode("newPassword");
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(passwordResetTokenRepository).findByToken(token);
+    }
+
+    @Test
+    void updatePassword_storesRehashWithoutRevokingTokens() {
+        //given
+        userEntity.setTokenVersion(3L);
+        String rehashed = "{bcrypt}rehashed";
+        //when
+        when(userRepository.findWithAuthoritiesByEmail(email)).thenReturn(userEntity);
+        when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
+        UserDetails result = userService.updatePassword(new UserPrincipal(userEntity), rehashed);
+        //then
+        Assertions.assertEquals(rehashed, result.getPassword());
+        Assertions.assertEquals(3L, userEntity.getTokenVersion());
+        verify(principalCache, times(1)).evict(email);
+        verify(tokenVersionCache, never()).evict(anyString());
+    }
+
+    @Test
+    void getUsers_withCursorSeeksPastLastIdAndReturnsNextCursor() {
+        //given
+        UserEntity second = new UserEntity();
+        second.setId(2L);
+        UserEntity third = new UserEntity();
+        third.setId(3L);
+        //when
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(userEntity, second, third));
+        UserPageDto firstPage = userService.getUsers("", 2);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(third));
+        UserPageDto secondPage = userService.getUsers(firstPage.getNext(), 2);
+        //then
+        Assertions.assertEquals(2, firstPage.getUsers().size());
+        Assertions.assertNotNull(firstPage.getNext());
+        Assertions.assertEquals(1, secondPage.getUsers().size());
+        Assertions.assertNull(secondPage.getNext());
+        verify(userRepository, never()).findAll(any(Pageable.class));
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3)));
+    }
+
+    @Test
+    void getUsers_withZeroLimitReturnsOneUser() {
+        //given
+        UserEntity second = new UserEntity();
+        second.setId(2L);
+        //when
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(userEntity, second));
+        UserPageDto usersPage = userService.getUsers("", 0);
+        //then
+        Assertions.assertEquals(1, usersPage.getUsers().size());
+        Assertions.assertNotNull(usersPage.getNext());
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+    }
+
+    @Test
+    void getUsers_withNegativeLimitReturnsOneUser() {
+        //when
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(userEntity));
+        UserPageDto usersPage = userService.getUsers("", -5);
+        //then
+        Assertions.assertEquals(1, usersPage.getUsers().size());
+        Assertions.assertNull(usersPage.getNext());
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+    }
+
+    @Test
+    void getUsers_withHugeLimitReadsAtMostMaxCursorLimit() {
+        //when
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(userEntity));
+        userService.getUsers("", Integer.MAX_VALUE);
+        //then
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(eq(0L),
+                eq(PageRequest.of(0, Utils.MAX_CURSOR_LIMIT + 1)));
+    }
+
+    @Test
+    void getUsers_rejectsMalformedCursor() {
+        //then
+        Assertions.assertThrows(UserServiceException.class, () -> userService.getUsers("not a cursor!", 2));
+    }
+}
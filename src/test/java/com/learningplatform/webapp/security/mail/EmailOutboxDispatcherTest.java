@@ -0,0 +1,188 @@
+package com.learningplatform.webapp.security.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.learningplatform.webapp.security.model.entity.EmailOutboxEntity;
+import com.learningplatform.webapp.security.model.repository.EmailOutboxRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Mock
+    EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    AppProperties appProperties;
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    EmailOutboxDispatcher dispatcher;
+
+    EmailOutboxEntity email;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.getEmailOutboxBatchSize()).thenReturn(10);
+        when(appProperties.getEmailOutboxConcurrency()).thenReturn(2);
+        when(appProperties.getEmailOutboxMaxAttempts()).thenReturn(3);
+        when(appProperties.getEmailOutboxLeaseMs()).thenReturn(60_000L);
+        when(appProperties.getEmailOutboxInitialBackoffMs()).thenReturn(1_000L);
+        when(appProperties.getEmailOutboxMaxBackoffMs()).thenReturn(10_000L);
+        when(appProperties.getEmailOutboxRetentionHours()).thenReturn(24L);
+
+        email = new EmailOutboxEntity();
+        email.setId(1L);
+        email.setType(EmailType.VERIFICATION);
+        email.setRecipient("johnny@mail.com");
+        email.setRecipientName("John Connor");
+        email.setToken("sfdg43rfsg");
+        email.setLocale("en");
+        email.setStatus(EmailStatus.PENDING);
+        email.setNextAttemptAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+
+        when(emailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                eq(EmailStatus.PENDING), any(Instant.class), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(email));
+        when(emailOutboxRepository.claim(anyLong(), any(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void dispatch_sendsDueEmailAndMarksItSent() throws Exception {
+        //given
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, emailSender(ServerSetupTest.SMTP.getPort()),
+                appProperties);
+        //when
+        dispatcher.dispatch();
+        //then
+        verify(emailOutboxRepository, timeout(5_000)).save(email);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        Assertions.assertEquals(1, received.length);
+        Assertions.assertEquals("johnny@mail.com", received[0].getAllRecipients()[0].toString());
+        Assertions.assertTrue(GreenMailUtil.getBody(received[0]).contains("sfdg43rfsg"));
+        Assertions.assertEquals(EmailStatus.SENT, email.getStatus());
+        Assertions.assertEquals(1, email.getAttempts());
+        Assertions.assertEquals(1, meterRegistry.get("mail.send").tag("outcome", "success").timer().count());
+        verify(emailOutboxRepository, times(1)).save(email);
+    }
+
+    @Test
+    void dispatch_returnsBeforeSendsComplete() throws Exception {
+        //given
+        EmailSender emailSender = mock(EmailSender.class);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(emailSender)
+                .sendVerificationEmail(anyString(), anyString(), anyString(), any());
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, emailSender, appProperties);
+        //when
+        dispatcher.dispatch();
+        dispatcher.dispatch();
+        //then
+        verify(emailOutboxRepository, never()).save(any());
+        verify(emailOutboxRepository).findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                eq(EmailStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10)));
+        verify(emailOutboxRepository).findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                eq(EmailStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 9)));
+        release.countDown();
+        verify(emailOutboxRepository, timeout(5_000).times(2)).save(email);
+    }
+
+    @Test
+    void purge_deletesSentAndDeadEmailsOlderThanRetention() {
+        //given
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, mock(EmailSender.class), appProperties);
+        Instant before = Instant.now();
+        //when
+        dispatcher.purge();
+        //then
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(emailOutboxRepository).deleteFinished(eq(Arrays.asList(EmailStatus.SENT, EmailStatus.DEAD)),
+                cutoff.capture());
+        Assertions.assertFalse(cutoff.getValue().isBefore(before.minus(Duration.ofHours(24))));
+        Assertions.assertFalse(cutoff.getValue().isAfter(Instant.now().minus(Duration.ofHours(24))));
+    }
+
+    @Test
+    void dispatch_skipsEmailClaimedByAnotherNode() throws Exception {
+        //given
+        when(emailOutboxRepository.claim(anyLong(), any(), any(), any())).thenReturn(0);
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, emailSender(ServerSetupTest.SMTP.getPort()),
+                appProperties);
+        //when
+        dispatcher.dispatch();
+        //then
+        Assertions.assertEquals(0, greenMail.getReceivedMessages().length);
+        verify(emailOutboxRepository, never()).save(any());
+    }
+
+    @Test
+    void dispatch_schedulesRetryWithBackoffWhenSmtpFails() throws Exception {
+        //given
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, emailSender(1), appProperties);
+        Instant before = Instant.now();
+        //when
+        dispatcher.dispatch();
+        //then
+        verify(emailOutboxRepository, timeout(5_000)).save(email);
+        Assertions.assertEquals(EmailStatus.PENDING, email.getStatus());
+        Assertions.assertEquals(1, email.getAttempts());
+        Assertions.assertNotNull(email.getLastError());
+        Assertions.assertTrue(email.getNextAttemptAt().isAfter(before.plusMillis(500)));
+        Assertions.assertEquals(1, meterRegistry.get("mail.send").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void dispatch_deadLettersAfterMaxAttempts() throws Exception {
+        //given
+        email.setAttempts(2);
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, emailSender(1), appProperties);
+        //when
+        dispatcher.dispatch();
+        //then
+        verify(emailOutboxRepository, timeout(5_000)).save(email);
+        Assertions.assertEquals(EmailStatus.DEAD, email.getStatus());
+        Assertions.assertEquals(3, email.getAttempts());
+    }
+
+    private EmailSender emailSender(int port) throws Exception {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        return new EmailSender(mailSender, new EmailTemplates(), meterRegistry);
+    }
+}
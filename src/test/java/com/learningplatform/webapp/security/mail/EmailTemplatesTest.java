@@ -0,0 +1,53 @@
+package com.learningplatform.webapp.security.mail;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+class EmailTemplatesTest {
+
+    EmailTemplates emailTemplates = new EmailTemplates();
+
+    @Test
+    void render_replacesEveryPlaceholder() {
+        //given
+        EmailTemplate template = EmailTemplate.compile("subject", "[[a]] and [[b]], again [[a]]!");
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "x");
+        values.put("b", "y");
+        //when
+        String rendered = template.render(values);
+        //then
+        Assertions.assertEquals("x and y, again x!", rendered);
+    }
+
+    @Test
+    void render_leavesUnterminatedPlaceholderAsLiteral() {
+        //given
+        EmailTemplate template = EmailTemplate.compile("subject", "[[a]] and [[b");
+        //when
+        String rendered = template.render(new HashMap<>());
+        //then
+        Assertions.assertEquals(" and [[b", rendered);
+    }
+
+    @Test
+    void get_loadsLocalizedTemplate() {
+        //when
+        EmailTemplate template = emailTemplates.get(EmailTemplates.VERIFICATION, Locale.forLanguageTag("pl-PL"));
+        //then
+        Assertions.assertEquals("Potwierdź rejestrację", template.getSubject());
+    }
+
+    @Test
+    void get_fallsBackToDefaultTemplateForUnknownLanguage() {
+        //when
+        EmailTemplate template = emailTemplates.get(EmailTemplates.PASSWORD_RESET, Locale.JAPANESE);
+        //then
+        Assertions.assertEquals("Password reset", template.getSubject());
+        Assertions.assertSame(template, emailTemplates.get(EmailTemplates.PASSWORD_RESET, Locale.JAPANESE));
+    }
+}
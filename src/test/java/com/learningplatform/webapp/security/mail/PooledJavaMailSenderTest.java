@@ -0,0 +1,97 @@
+package com.learningplatform.webapp.security.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PooledJavaMailSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    CountingMailSender mailSender;
+
+    @AfterEach
+    void tearDown() {
+        mailSender.destroy();
+    }
+
+    @Test
+    void send_reusesOneConnectionForSequentialMessages() {
+        //given
+        mailSender = mailSender(ServerSetupTest.SMTP.getPort(), 60_000L);
+        //when
+        for (int i = 0; i < 5; i++) {
+            mailSender.send(message(i));
+        }
+        //then
+        Assertions.assertEquals(5, greenMail.getReceivedMessages().length);
+        Assertions.assertEquals(1, mailSender.connections.get());
+        Assertions.assertEquals(1, mailSender.getIdleCount());
+    }
+
+    @Test
+    void send_closesConnectionsIdleLongerThanTimeout() throws Exception {
+        //given
+        mailSender = mailSender(ServerSetupTest.SMTP.getPort(), 100L);
+        mailSender.send(message(0));
+        //when
+        Thread.sleep(300L);
+        mailSender.send(message(1));
+        //then
+        Assertions.assertEquals(2, greenMail.getReceivedMessages().length);
+        Assertions.assertEquals(2, mailSender.connections.get());
+    }
+
+    @Test
+    void send_releasesPermitWhenServerIsUnreachable() {
+        //given
+        mailSender = mailSender(1, 60_000L);
+        //when
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThrows(MailSendException.class, () -> mailSender.send(message(0)));
+        }
+        //then
+        Assertions.assertEquals(3, mailSender.connections.get());
+        Assertions.assertEquals(0, mailSender.getIdleCount());
+    }
+
+    private static SimpleMailMessage message(int i) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@mail.com");
+        message.setTo("johnny" + i + "@mail.com");
+        message.setSubject("subject");
+        message.setText("body");
+        return message;
+    }
+
+    private static CountingMailSender mailSender(int port, long idleTimeoutMillis) {
+        CountingMailSender mailSender = new CountingMailSender(idleTimeoutMillis);
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        return mailSender;
+    }
+
+    static class CountingMailSender extends PooledJavaMailSender {
+        final AtomicInteger connections = new AtomicInteger();
+
+        CountingMailSender(long idleTimeoutMillis) {
+            super(1, idleTimeoutMillis, 0L, 1_000L);
+        }
+
+        @Override
+        protected Transport connectTransport() throws MessagingException {
+            connections.incrementAndGet();
+            return super.connectTransport();
+        }
+    }
+}
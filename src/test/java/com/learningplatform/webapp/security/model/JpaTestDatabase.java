@@ -0,0 +1,105 @@
+package com.learningplatform.webapp.security.model;
+
+import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.model.entity.EmailOutboxEntity;
+import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
+import com.learningplatform.webapp.security.model.entity.RevokedTokenEntity;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+
+/**
+ * Hibernate and the Spring Data repositories without the application context, for the tests that count or
+ * explain the SQL they issue: an embedded H2 database in MySQL mode migrated with the Flyway scripts, and a
+ * session factory over every entity that checks them against it as {@code ddl-auto=validate} does.
+ */
+public final class JpaTestDatabase {
+    private static final String OPTIONS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private JpaTestDatabase() {
+    }
+
+    /**
+     * In-memory database {@code name}, kept until {@link #drop(DataSource) dropped}.
+     */
+    public static DataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + OPTIONS, "sa", "");
+    }
+
+    public static DataSource migrate(DataSource dataSource) {
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return dataSource;
+    }
+
+    /**
+     * Settings of the application's session factory on {@code dataSource}; tests add their own before building.
+     */
+    public static StandardServiceRegistryBuilder registry(DataSource dataSource) {
+        return new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "validate")
+                // Boot's naming, as in the application
+                .applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, new SpringPhysicalNamingStrategy())
+                .applySetting(AvailableSettings.IMPLICIT_NAMING_STRATEGY, new SpringImplicitNamingStrategy());
+    }
+
+    public static SessionFactory sessionFactory(StandardServiceRegistryBuilder registry) {
+        return new MetadataSources(registry.build())
+                .addAnnotatedClass(UserEntity.class)
+                .addAnnotatedClass(RoleEntity.class)
+                .addAnnotatedClass(AuthorityEntity.class)
+                .addAnnotatedClass(PasswordResetTokenEntity.class)
+                .addAnnotatedClass(EmailOutboxEntity.class)
+                .addAnnotatedClass(RevokedTokenEntity.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    public static JpaTransactionManager transactionManager(SessionFactory sessionFactory) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(sessionFactory);
+        // As in the application: read-only transactions flush manually and load read-only entities
+        transactionManager.setJpaDialect(new HibernateJpaDialect());
+        return transactionManager;
+    }
+
+    /**
+     * Repositories on the shared entity manager, behind the same transaction proxies as in the application.
+     */
+    public static JpaRepositoryFactory repositories(SessionFactory sessionFactory,
+                                                    PlatformTransactionManager transactionManager) {
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(sessionFactory));
+        repositoryFactory.addRepositoryProxyPostProcessor((factory, repositoryInformation) ->
+                factory.addAdvice(transactionInterceptor(transactionManager)));
+        return repositoryFactory;
+    }
+
+    /**
+     * Applies the {@code @Transactional} annotations of a proxied class, like the application's proxies.
+     */
+    public static TransactionInterceptor transactionInterceptor(TransactionManager transactionManager) {
+        return new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource(false));
+    }
+
+    public static void drop(DataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("drop all objects");
+    }
+}
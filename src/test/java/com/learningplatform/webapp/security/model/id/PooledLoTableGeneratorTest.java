@@ -0,0 +1,98 @@
+package com.learningplatform.webapp.security.model.id;
+
+import com.learningplatform.webapp.security.model.entity.AuthorityEntity;
+import com.learningplatform.webapp.security.model.entity.EmailOutboxEntity;
+import com.learningplatform.webapp.security.model.entity.PasswordResetTokenEntity;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class PooledLoTableGeneratorTest {
+
+    SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.URL, "jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.MAX_FETCH_DEPTH, "2")
+                .applySetting(PooledLoTableGenerator.ALLOCATION_SIZE_SETTING, "2")
+                .build();
+
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(UserEntity.class)
+                .addAnnotatedClass(RoleEntity.class)
+                .addAnnotatedClass(AuthorityEntity.class)
+                .addAnnotatedClass(PasswordResetTokenEntity.class)
+                .addAnnotatedClass(EmailOutboxEntity.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void generate_allocatesIdsInBlocksPerTable() {
+        //when
+        List<Long> ids = persistRoles("ROLE_A", "ROLE_B", "ROLE_C");
+        //then
+        Assertions.assertEquals(Arrays.asList(1L, 2L, 3L), ids);
+        Assertions.assertEquals(4L, lastValue("roles"));
+        Assertions.assertEquals(0L, lastValue("users"));
+    }
+
+    @Test
+    void generate_continuesFromSeededValue() {
+        //given
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.createNativeQuery("update id_generators set last_value = 100 where segment_name = 'roles'")
+                    .executeUpdate();
+            session.getTransaction().commit();
+        }
+        //when
+        List<Long> ids = persistRoles("ROLE_A", "ROLE_B");
+        //then
+        Assertions.assertEquals(Arrays.asList(101L, 102L), ids);
+    }
+
+    private List<Long> persistRoles(String... names) {
+        List<Long> ids = new ArrayList<>();
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (String name : names) {
+                RoleEntity role = new RoleEntity(name);
+                session.persist(role);
+                ids.add(role.getId());
+            }
+            session.getTransaction().commit();
+        }
+        return ids;
+    }
+
+    private Long lastValue(String segment) {
+        try (Session session = sessionFactory.openSession()) {
+            Object value = session.createNativeQuery("select last_value from id_generators where segment_name = :segment")
+                    .setParameter("segment", segment)
+                    .uniqueResult();
+            return value == null ? null : ((Number) value).longValue();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.learningplatform.webapp.security.model.mapper;
+
+import com.learningplatform.webapp.security.model.dto.UserDto;
+import com.learningplatform.webapp.security.model.entity.RoleEntity;
+import com.learningplatform.webapp.security.model.entity.UserEntity;
+import com.learningplatform.webapp.security.model.request.UserDetailsRequestModel;
+import com.learningplatform.webapp.security.model.request.UserDetailsUpdateRequestModel;
+import com.learningplatform.webapp.security.model.response.UserDetailsResponseModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Checks the generated mappings against the reflective ModelMapper they replace.
+ */
+class UserMapperTest {
+
+    UserMapper userMapper = UserMapper.INSTANCE;
+
+    ModelMapper modelMapper = new ModelMapper();
+
+    UserEntity userEntity;
+
+    UserDto userDto;
+
+    @BeforeEach
+    void setUp() {
+        RoleEntity role = new RoleEntity("ROLE_USER");
+        role.setId(1L);
+
+        userEntity = new UserEntity();
+        userEntity.setId(1L);
+        userEntity.setUserId("asf23");
+        userEntity.setFirstName("John");
+        userEntity.setLastName("Connor");
+        userEntity.setEmail("johnny@mail.com");
+        userEntity.setEncryptedPassword("asdf234fdh13we");
+        userEntity.setEmailVerificationToken("sfdg43rfsg");
+        userEntity.setEmailVerificationStatus(true);
+        userEntity.setRoles(new ArrayList<>(Collections.singletonList(role)));
+
+        userDto = new UserDto();
+        userDto.setId(1L);
+        userDto.setUserId("asf23");
+        userDto.setFirstName("John");
+        userDto.setLastName("Connor");
+        userDto.setEmail("johnny@mail.com");
+        userDto.setPassword("123");
+        userDto.setEncryptedPassword("asdf234fdh13we");
+        userDto.setEmailVerificationToken("sfdg43rfsg");
+        userDto.setEmailVerificationStatus(true);
+        userDto.setRoles(Arrays.asList("ROLE_USER", "ROLE_ADMIN"));
+    }
+
+    @Test
+    void toUserDto_fromEntityMatchesModelMapper() {
+        //when
+        UserDto expected = modelMapper.map(userEntity, UserDto.class);
+        UserDto actual = userMapper.toUserDto(userEntity);
+        //then
+        assertSameUser(expected, actual);
+        Assertions.assertEquals("asdf234fdh13we", actual.getPassword());
+        Assertions.assertEquals(expected.getEncryptedPassword(), actual.getEncryptedPassword());
+        Assertions.assertEquals(expected.getEmailVerificationToken(), actual.getEmailVerificationToken());
+        Assertions.assertEquals(expected.getEmailVerificationStatus(), actual.getEmailVerificationStatus());
+        // ModelMapper put one element per role into the Collection<String>, but not the role name: either the
+        // RoleEntity itself or its toString(). The generated mapper keeps the count and uses the name.
+        Assertions.assertEquals(expected.getRoles().size(), actual.getRoles().size());
+        Assertions.assertEquals(Collections.singletonList("ROLE_USER"), new ArrayList<>(actual.getRoles()));
+    }
+
+    @Test
+    void toUserDto_fromEntityWithoutRolesMatchesModelMapper() {
+        //given
+        userEntity.setRoles(null);
+        userEntity.setId(null);
+        //when
+        UserDto expected = modelMapper.map(userEntity, UserDto.class);
+        UserDto actual = userMapper.toUserDto(userEntity);
+        //then
+        Assertions.assertNull(actual.getRoles());
+        Assertions.assertEquals(expected.getRoles(), actual.getRoles());
+        Assertions.assertEquals(expected.getId(), actual.getId());
+    }
+
+    @Test
+    void toUserEntity_matchesModelMapper() {
+        //when
+        UserEntity expected = modelMapper.map(userDto, UserEntity.class);
+        UserEntity actual = userMapper.toUserEntity(userDto);
+        //then
+        Assertions.assertEquals(expected.getId(), actual.getId());
+        Assertions.assertEquals(expected.getUserId(), actual.getUserId());
+        Assertions.assertEquals(expected.getFirstName(), actual.getFirstName());
+        Assertions.assertEquals(expected.getLastName(), actual.getLastName());
+        Assertions.assertEquals(expected.getEmail(), actual.getEmail());
+        Assertions.assertEquals(expected.getEncryptedPassword(), actual.getEncryptedPassword());
+        Assertions.assertEquals(expected.getEmailVerificationToken(), actual.getEmailVerificationToken());
+        Assertions.assertEquals(expected.getEmailVerificationStatus(), actual.getEmailVerificationStatus());
+        Assertions.assertEquals(expected.getTokenVersion(), actual.getTokenVersion());
+        // Role names are resolved against the roles table by the service, never mapped onto the entity
+        Assertions.assertNull(actual.getRoles());
+    }
+
+    @Test
+    void toUserDto_fromRequestModelsMatchesModelMapper() {
+        //given
+        UserDetailsRequestModel request = new UserDetailsRequestModel();
+        request.setFirstName("John");
+        request.setLastName("Connor");
+        request.setEmail("johnny@mail.com");
+        request.setPassword("123");
+        UserDetailsUpdateRequestModel update = new UserDetailsUpdateRequestModel();
+        update.setFirstName("Sarah");
+        //when
+        UserDto expected = modelMapper.map(request, UserDto.class);
+        UserDto actual = userMapper.toUserDto(request);
+        UserDto expectedUpdate = modelMapper.map(update, UserDto.class);
+        UserDto actualUpdate = userMapper.toUserDto(update);
+        //then
+        assertSameUser(expected, actual);
+        Assertions.assertEquals("123", actual.getPassword());
+        Assertions.assertNull(actual.getEncryptedPassword());
+        Assertions.assertEquals(expected.getEmailVerificationStatus(), actual.getEmailVerificationStatus());
+        assertSameUser(expectedUpdate, actualUpdate);
+    }
+
+    @Test
+    void toResponseModel_matchesModelMapper() {
+        //when
+        UserDetailsResponseModel expected = modelMapper.map(userDto, UserDetailsResponseModel.class);
+        UserDetailsResponseModel actual = userMapper.toResponseModel(userDto);
+        //then
+        Assertions.assertEquals(expected.getUserId(), actual.getUserId());
+        Assertions.assertEquals(expected.getFirstName(), actual.getFirstName());
+        Assertions.assertEquals(expected.getLastName(), actual.getLastName());
+        Assertions.assertEquals(expected.getEmail(), actual.getEmail());
+    }
+
+    private static void assertSameUser(UserDto expected, UserDto actual) {
+        Assertions.assertEquals(expected.getId(), actual.getId());
+        Assertions.assertEquals(expected.getUserId(), actual.getUserId());
+        Assertions.assertEquals(expected.getFirstName(), actual.getFirstName());
+        Assertions.assertEquals(expected.getLastName(), actual.getLastName());
+        Assertions.assertEquals(expected.getEmail(), actual.getEmail());
+        Assertions.assertEquals(expected.getPassword(), actual.getPassword());
+    }
+}
@@ -0,0 +1,178 @@
+package com.learningplatform.webapp.security.model.repository;
+
+import com.learningplatform.webapp.security.mail.EmailStatus;
+import com.learningplatform.webapp.security.model.JpaTestDatabase;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveRoleRepository;
+import com.learningplatform.webapp.security.reactive.model.repository.ReactiveUserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.r2dbc.repository.Query;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Migrates an H2 database in MySQL mode with the Flyway scripts, checks the entities against it as
+ * {@code ddl-auto=validate} does, and then explains the SQL of every repository lookup. A lookup that reads a
+ * table without an index fails with the plan in the message.
+ */
+class RepositoryIndexUsageTest {
+    DataSource dataSource = JpaTestDatabase.dataSource("schema");
+    SessionFactory sessionFactory;
+    EntityManager entityManager;
+    List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    UserRepository userRepository;
+    RoleRepository roleRepository;
+    AuthorityRepository authorityRepository;
+    PasswordResetTokenRepository passwordResetTokenRepository;
+    EmailOutboxRepository emailOutboxRepository;
+    RevokedTokenRepository revokedTokenRepository;
+
+    @BeforeEach
+    void setUp() {
+        JpaTestDatabase.migrate(dataSource);
+        sessionFactory = JpaTestDatabase.sessionFactory(JpaTestDatabase.registry(dataSource)
+                .applySetting(AvailableSettings.MAX_FETCH_DEPTH, "2")
+                .applySetting(AvailableSettings.STATEMENT_INSPECTOR,
+                        (StatementInspector) sql -> {
+                            statements.add(sql);
+                            return sql;
+                        }));
+
+        entityManager = sessionFactory.createEntityManager();
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+        userRepository = repositoryFactory.getRepository(UserRepository.class);
+        roleRepository = repositoryFactory.getRepository(RoleRepository.class);
+        authorityRepository = repositoryFactory.getRepository(AuthorityRepository.class);
+        passwordResetTokenRepository = repositoryFactory.getRepository(PasswordResetTokenRepository.class);
+        emailOutboxRepository = repositoryFactory.getRepository(EmailOutboxRepository.class);
+        revokedTokenRepository = repositoryFactory.getRepository(RevokedTokenRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManager.close();
+        sessionFactory.close();
+        JpaTestDatabase.drop(dataSource);
+    }
+
+    @Test
+    void userLookups_useIndexes() throws SQLException {
+        assertUsesIndexes(() -> userRepository.findByEmail("user@test.com"), "'user@test.com'");
+        assertUsesIndexes(() -> userRepository.findByUserId("userId"), "'userId'");
+        assertUsesIndexes(() -> userRepository.findByEmailVerificationToken("token"), "'token'");
+        assertUsesIndexes(() -> userRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 25)),
+                "1", "26");
+        assertUsesIndexes(() -> userRepository.findTokenVersionByUserId("userId"), "'userId'");
+        assertUsesIndexes(() -> userRepository.findEmailsIn(Collections.singletonList("user@test.com")),
+                "'user@test.com'");
+    }
+
+    @Test
+    void roleAndAuthorityLookups_useIndexes() throws SQLException {
+        assertUsesIndexes(() -> roleRepository.findByName("ROLE_USER"), "'ROLE_USER'");
+        assertUsesIndexes(() -> authorityRepository.findByName("READ_AUTHORITY"), "'READ_AUTHORITY'");
+    }
+
+    @Test
+    void passwordResetTokenLookups_useIndexes() throws SQLException {
+        assertUsesIndexes(() -> passwordResetTokenRepository.findByToken("token"), "'token'");
+        assertUsesIndexes(() -> passwordResetTokenRepository.findByUserEntity_Email("user@test.com"),
+                "'user@test.com'");
+    }
+
+    @Test
+    void emailOutboxLookup_usesIndexes() throws SQLException {
+        assertUsesIndexes(() -> emailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                        EmailStatus.PENDING, Instant.now(), PageRequest.of(0, 25)),
+                "'PENDING'", "timestamp '2021-01-01 00:00:00'", "25");
+        // The purge is a bulk delete, so it needs a transaction
+        assertUsesIndexes(() -> {
+                    entityManager.getTransaction().begin();
+                    emailOutboxRepository.deleteFinished(Arrays.asList(EmailStatus.SENT, EmailStatus.DEAD),
+                            Instant.now());
+                    entityManager.getTransaction().rollback();
+                },
+                "'SENT'", "'DEAD'", "timestamp '2021-01-01 00:00:00'");
+    }
+
+    @Test
+    void revokedTokenLookups_useIndexes() throws SQLException {
+        assertUsesIndexes(() -> revokedTokenRepository.existsByJti("jti"), "'jti'", "1");
+        assertUsesIndexes(() -> revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(
+                        Instant.now(), Instant.now()),
+                "timestamp '2021-01-01 00:00:00'", "timestamp '2021-01-01 00:00:00'");
+    }
+
+    @Test
+    void reactiveJoinTableQueries_useIndexes() throws Exception {
+        assertUsesIndexes(reactiveQuery(ReactiveRoleRepository.class, "findRoleNamesByUserId", long.class)
+                .replace(":userId", "1"));
+        assertUsesIndexes(reactiveQuery(ReactiveRoleRepository.class, "findAuthorityNamesByUserId", long.class)
+                .replace(":userId", "1"));
+        assertUsesIndexes(reactiveQuery(ReactiveUserRepository.class, "findTokenVersionByUserId", String.class)
+                .replace(":userId", "'userId'"));
+    }
+
+    private static String reactiveQuery(Class<?> repository, String method, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        return repository.getMethod(method, parameterTypes)
+                .getAnnotation(Query.class)
+                .value();
+    }
+
+    /**
+     * Runs {@code lookup} against the empty database, so only the lookup's own statement is issued, and explains
+     * it with the given literals in place of its parameters.
+     */
+    private void assertUsesIndexes(Runnable lookup, String... parameters) throws SQLException {
+        statements.clear();
+        lookup.run();
+
+        Assertions.assertEquals(1, statements.size(), () -> "Expected a single statement: " + statements);
+        assertUsesIndexes(bind(statements.get(0), parameters));
+    }
+
+    private void assertUsesIndexes(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery("explain " + sql)) {
+            plan.next();
+            String returnValue = plan.getString(1);
+            Assertions.assertFalse(returnValue.toLowerCase().contains("tablescan"),
+                    () -> "Table scan in the plan of " + sql + ":\n" + returnValue);
+        }
+    }
+
+    private static String bind(String sql, String... parameters) {
+        Matcher matcher = Pattern.compile("\\?").matcher(sql);
+        StringBuffer returnValue = new StringBuffer();
+        int index = 0;
+        while (matcher.find()) {
+            Assertions.assertTrue(index < parameters.length, () -> "Missing parameter for " + sql);
+            matcher.appendReplacement(returnValue, Matcher.quoteReplacement(parameters[index++]));
+        }
+        matcher.appendTail(returnValue);
+        Assertions.assertEquals(parameters.length, index, () -> "Too many parameters for " + sql);
+        return returnValue.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.learningplatform.webapp.security.reactive;
+
+import com.learningplatform.webapp.security.UserPrincipal;
+import com.learningplatform.webapp.security.crypto.ReactivePasswordEncoder;
+import com.learningplatform.webapp.security.reactive.logic.service.ReactiveUserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReactiveUserAuthenticationManagerTest {
+
+    @Mock
+    ReactiveUserService userService;
+
+    @Mock
+    ReactivePasswordEncoder passwordEncoder;
+
+    ReactiveUserAuthenticationManager authenticationManager;
+
+    final String email = "test@test.com";
+    final String storedHash = "{bcrypt}$2a$10$stored";
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(passwordEncoder.encode("userNotFoundPassword")).thenReturn(Mono.just("{bcrypt}$2a$10$dummy"));
+        authenticationManager = new ReactiveUserAuthenticationManager(userService, passwordEncoder);
+    }
+
+    private UserPrincipal principal(boolean enabled) {
+        return new UserPrincipal("userId", email, storedHash, enabled, 0L, Collections.singletonList("ROLE_USER"));
+    }
+
+    private Mono<Authentication> authenticate(String password) {
+        return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(email, password));
+    }
+
+    @Test
+    void authenticate_returnsPrincipalWithAuthorities() {
+        //given
+        UserPrincipal principal = principal(true);
+        when(userService.findByUsername(email)).thenReturn(Mono.just(principal));
+        when(passwordEncoder.matches("password", storedHash)).thenReturn(Mono.just(true));
+        //when
+        Authentication authentication = authenticate("password").block();
+        //then
+        Assertions.assertNotNull(authentication);
+        Assertions.assertSame(principal, authentication.getPrincipal());
+        Assertions.assertTrue(authentication.isAuthenticated());
+        Assertions.assertEquals(1, authentication.getAuthorities().size());
+        verify(userService, never()).updatePassword(any(), anyString());
+    }
+
+    @Test
+    void authenticate_rejectsDisabledUserBeforeComparingPassword() {
+        //given
+        when(userService.findByUsername(email)).thenReturn(Mono.just(principal(false)));
+        //when
+        Mono<Authentication> authentication = authenticate("password");
+        //then
+        Assertions.assertThrows(DisabledException.class, authentication::block);
+        verify(passwordEncoder, never()).matches(anyString(), anyString());
+    }
+
+    @Test
+    void authenticate_comparesDummyHashForUnknownUser() {
+        //given
+        when(userService.findByUsername(email)).thenReturn(Mono.empty());
+        when(passwordEncoder.matches("password", "{bcrypt}$2a$10$dummy")).thenReturn(Mono.just(false));
+        //when
+        Mono<Authentication> authentication = authenticate("password");
+        //then
+        Assertions.assertThrows(BadCredentialsException.class, authentication::block);
+        verify(passwordEncoder).matches("password", "{bcrypt}$2a$10$dummy");
+    }
+
+    @Test
+    void authenticate_rejectsWrongPassword() {
+        //given
+        when(userService.findByUsername(email)).thenReturn(Mono.just(principal(true)));
+        when(passwordEncoder.matches("wrong", storedHash)).thenReturn(Mono.just(false));
+        //when
+        Mono<Authentication> authentication = authenticate("wrong");
+        //then
+        Assertions.assertThrows(BadCredentialsException.class, authentication::block);
+    }
+
+    @Test
+    void authenticate_rehashesOutdatedHash() {
+        //given
+        UserPrincipal rehashed = principal(true);
+        when(userService.findByUsername(email)).thenReturn(Mono.just(principal(true)));
+        when(passwordEncoder.matches("password", storedHash)).thenReturn(Mono.just(true));
+        when(passwordEncoder.upgradeEncoding(storedHash)).thenReturn(true);
+        when(passwordEncoder.encode("password")).thenReturn(Mono.just("{bcrypt}$2a$12$new"));
+        when(userService.updatePassword(any(), eq("{bcrypt}$2a$12$new"))).thenReturn(Mono.just(rehashed));
+        //when
+        Authentication authentication = authenticate("password").block();
+        //then
+        Assertions.assertNotNull(authentication);
+        Assertions.assertSame(rehashed, authentication.getPrincipal());
+    }
+}
@@ -0,0 +1,146 @@
+package com.learningplatform.webapp.security.throttle;
+
+import com.learningplatform.webapp.security.exceptions.LoginThrottledException;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.when;
+
+class LoginThrottleTest {
+
+    @Mock
+    AppProperties appProperties;
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicLong now = new AtomicLong();
+
+    LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.isLoginThrottleEnabled()).thenReturn(true);
+        when(appProperties.getLoginThrottleEmailCapacity()).thenReturn(3);
+        when(appProperties.getLoginThrottleEmailRefillPerMinute()).thenReturn(6);
+        when(appProperties.getLoginThrottleIpCapacity()).thenReturn(10);
+        when(appProperties.getLoginThrottleIpRefillPerMinute()).thenReturn(60);
+        when(appProperties.getLoginThrottleMaxKeys()).thenReturn(100L);
+        when(appProperties.getLoginThrottleIdleSeconds()).thenReturn(60L);
+
+        loginThrottle = new LoginThrottle(appProperties, meterRegistry, now::get);
+    }
+
+    @Test
+    void acquire_rejectsAttemptsBeyondCapacityUntilRefilled() {
+        //when
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        }
+        LoginThrottledException exception = Assertions.assertThrows(LoginThrottledException.class,
+                () -> loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "john@mail.com"));
+        //then
+        Assertions.assertEquals(10, exception.getRetryAfterSeconds());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "john@mail.com");
+
+        LoginThrottle.KeyStats stats = loginThrottle.getStats(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        Assertions.assertEquals(4, stats.getAllowed());
+        Assertions.assertEquals(1, stats.getRejected());
+        Assertions.assertEquals(1.0, meterRegistry.get("security.login.throttle")
+                .tag("scope", "email").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    void acquire_keepsScopesAndKeysApart() {
+        //when
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        }
+        //then
+        Assertions.assertThrows(LoginThrottledException.class,
+                () -> loginThrottle.acquire(LoginThrottle.Scope.EMAIL, " John@Mail.com "));
+        Assertions.assertDoesNotThrow(() -> loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "jane@mail.com"));
+        Assertions.assertDoesNotThrow(() -> loginThrottle.acquire(LoginThrottle.Scope.IP, "john@mail.com"));
+    }
+
+    @Test
+    void check_rejectsOnlyOnceFailuresHaveEmptiedTheBucket() {
+        //given
+        for (int i = 0; i < 10; i++) {
+            loginThrottle.check(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        }
+        //when
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.recordFailure(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        }
+        LoginThrottledException exception = Assertions.assertThrows(LoginThrottledException.class,
+                () -> loginThrottle.check(LoginThrottle.Scope.EMAIL, "john@mail.com"));
+        //then
+        Assertions.assertEquals(10, exception.getRetryAfterSeconds());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        loginThrottle.check(LoginThrottle.Scope.EMAIL, "john@mail.com");
+
+        LoginThrottle.KeyStats stats = loginThrottle.getStats(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        Assertions.assertEquals(1, stats.getRejected());
+        Assertions.assertEquals(1.0, stats.getAvailableTokens());
+    }
+
+    @Test
+    void getMostRejected_ordersByRejectedAttempts() {
+        //given
+        for (int i = 0; i < 5; i++) {
+            attempt("john@mail.com");
+        }
+        for (int i = 0; i < 4; i++) {
+            attempt("jane@mail.com");
+        }
+        //when
+        List<LoginThrottle.KeyStats> mostRejected = loginThrottle.getMostRejected(LoginThrottle.Scope.EMAIL, 1);
+        //then
+        Assertions.assertEquals(1, mostRejected.size());
+        Assertions.assertEquals("john@mail.com", mostRejected.get(0).getKey());
+        Assertions.assertEquals(2, mostRejected.get(0).getRejected());
+    }
+
+    @Test
+    void idleBucketIsEvictedOnceRefilled() {
+        //given
+        loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        //when
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        //then
+        Assertions.assertNull(loginThrottle.getStats(LoginThrottle.Scope.EMAIL, "john@mail.com"));
+    }
+
+    @Test
+    void acquire_allowsEverythingWhenDisabled() {
+        //given
+        when(appProperties.isLoginThrottleEnabled()).thenReturn(false);
+        loginThrottle = new LoginThrottle(appProperties, new SimpleMeterRegistry(), now::get);
+        //then
+        for (int i = 0; i < 10; i++) {
+            loginThrottle.acquire(LoginThrottle.Scope.EMAIL, "john@mail.com");
+        }
+    }
+
+    private void attempt(String email) {
+        try {
+            loginThrottle.acquire(LoginThrottle.Scope.EMAIL, email);
+        } catch (LoginThrottledException ignored) {
+        }
+    }
+}
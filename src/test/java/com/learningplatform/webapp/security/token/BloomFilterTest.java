@@ -0,0 +1,38 @@
+package com.learningplatform.webapp.security.token;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_neverMissesAnAddedValue() {
+        //given
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.001);
+        //when
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("added-" + i);
+        }
+        //then
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(bloomFilter.mightContain("added-" + i));
+        }
+    }
+
+    @Test
+    void mightContain_staysNearTheFalsePositiveRateAtCapacity() {
+        //given
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("added-" + i);
+        }
+        //when
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> bloomFilter.mightContain("other-" + i))
+                .count();
+        //then
+        Assertions.assertTrue(falsePositives < 2_000, () -> "False positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,150 @@
+package com.learningplatform.webapp.security.token;
+
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.Mockito.when;
+
+class JwtCodecTest {
+
+    @Mock
+    AppProperties appProperties;
+
+    String secret = "jf9i4jgu83nfl0dfg";
+    String rotatedSecret = "k3l9vnq84mzp2x7wr";
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.getTokenSecret()).thenReturn(secret);
+        when(appProperties.getTokenSecrets()).thenReturn(Collections.emptyMap());
+        when(appProperties.getTokenSigningKeyId()).thenReturn(JwtCodec.DEFAULT_KEY_ID);
+    }
+
+    @Test
+    void sign_producesTokenReadableByJjwt() {
+        //given
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        //when
+        String token = jwtCodec.sign("john@mail.com", 60_000, Collections.singletonMap("uid", "asf23"));
+        Claims claims = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        //then
+        Assertions.assertEquals("john@mail.com", claims.getSubject());
+        Assertions.assertEquals("asf23", claims.get("uid"));
+        Assertions.assertTrue(claims.getExpiration().after(new Date()));
+    }
+
+    @Test
+    void parse_acceptsTokenSignedByJjwt() {
+        //given
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        String token = Jwts.builder()
+                .setSubject("john@mail.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, secret)
+                .compact();
+        //then
+        Assertions.assertEquals("john@mail.com", jwtCodec.parse(token).getSubject());
+    }
+
+    @Test
+    void parse_acceptsTokensOfEveryConfiguredKeyAfterRotation() {
+        //given
+        String oldToken = new JwtCodec(appProperties).sign("john@mail.com", 60_000);
+        Map<String, String> secrets = Collections.singletonMap("2026-10", rotatedSecret);
+        when(appProperties.getTokenSecrets()).thenReturn(secrets);
+        when(appProperties.getTokenSigningKeyId()).thenReturn("2026-10");
+        //when
+        JwtCodec rotated = new JwtCodec(appProperties);
+        String newToken = rotated.sign("john@mail.com", 60_000);
+        //then
+        Assertions.assertEquals("john@mail.com", rotated.parse(oldToken).getSubject());
+        Assertions.assertEquals("john@mail.com", rotated.parse(newToken).getSubject());
+        Assertions.assertEquals("john@mail.com",
+                Jwts.parser().setSigningKey(rotatedSecret).parseClaimsJws(newToken).getBody().getSubject());
+    }
+
+    @Test
+    void parse_verifiesTokensSignedConcurrently() throws Exception {
+        //given
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String subject = "john" + i + "@mail.com";
+            tasks.add(() -> jwtCodec.parse(jwtCodec.sign(subject, 60_000)).getSubject());
+        }
+        //when
+        List<Future<String>> subjects = executor.invokeAll(tasks);
+        executor.shutdown();
+        //then
+        for (int i = 0; i < subjects.size(); i++) {
+            Assertions.assertEquals("john" + i + "@mail.com", subjects.get(i).get());
+        }
+    }
+
+    @Test
+    void parse_rejectsUnknownKeyId() {
+        //given
+        when(appProperties.getTokenSecrets()).thenReturn(Collections.singletonMap("retired", rotatedSecret));
+        when(appProperties.getTokenSigningKeyId()).thenReturn("retired");
+        String token = new JwtCodec(appProperties).sign("john@mail.com", 60_000);
+        when(appProperties.getTokenSecrets()).thenReturn(Collections.emptyMap());
+        when(appProperties.getTokenSigningKeyId()).thenReturn(JwtCodec.DEFAULT_KEY_ID);
+        //then
+        Assertions.assertThrows(SignatureException.class, () -> new JwtCodec(appProperties).parse(token));
+    }
+
+    @Test
+    void parse_rejectsTamperedPayload() {
+        //given
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        String[] parts = jwtCodec.sign("john@mail.com", 60_000).split("\\.");
+        String forgedPayload = jwtCodec.sign("admin@mail.com", 60_000).split("\\.")[1];
+        //then
+        Assertions.assertThrows(SignatureException.class,
+                () -> jwtCodec.parse(parts[0] + "." + forgedPayload + "." + parts[2]));
+    }
+
+    @Test
+    void parse_rejectsMalformedTokensBeforeVerification() {
+        //given
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        //then
+        Assertions.assertThrows(MalformedJwtException.class, () -> jwtCodec.parse(""));
+        Assertions.assertThrows(MalformedJwtException.class, () -> jwtCodec.parse("abc.def"));
+        Assertions.assertThrows(MalformedJwtException.class, () -> jwtCodec.parse("abc..def"));
+        Assertions.assertThrows(MalformedJwtException.class, () -> jwtCodec.parse("a.b.c.d"));
+        Assertions.assertThrows(MalformedJwtException.class, () -> jwtCodec.parse("a b.c.d"));
+    }
+
+    @Test
+    void parse_throwsExpiredJwtException() {
+        //given
+        JwtCodec jwtCodec = new JwtCodec(appProperties);
+        String token = jwtCodec.sign("john@mail.com", -5_000);
+        //then
+        Assertions.assertThrows(ExpiredJwtException.class, () -> jwtCodec.parse(token));
+    }
+}
@@ -0,0 +1,159 @@
+package com.learningplatform.webapp.security.token;
+
+import com.learningplatform.webapp.security.model.entity.RevokedTokenEntity;
+import com.learningplatform.webapp.security.model.repository.RevokedTokenRepository;
+import com.learningplatform.webapp.security.properties.AppProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationListTest {
+
+    @Mock
+    RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    AppProperties appProperties;
+
+    AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2021-10-01T12:00:00Z"));
+
+    TokenRevocationList tokenRevocationList;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(appProperties.getTokenRevocationExpectedRevocations()).thenReturn(1_000L);
+        when(appProperties.getTokenRevocationFalsePositiveRate()).thenReturn(0.001);
+        when(appProperties.getTokenRevocationBucketSeconds()).thenReturn(3_600L);
+        when(appProperties.getTokenRevocationConfirmedCacheMaxSize()).thenReturn(1_000L);
+        when(appProperties.getTokenRevocationConfirmedCacheTtlSeconds()).thenReturn(60L);
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+        tokenRevocationList = new TokenRevocationList(revokedTokenRepository, appProperties, clock);
+        tokenRevocationList.rebuild();
+    }
+
+    private Claims claims(String jti, Duration validFor) {
+        return new DefaultClaims()
+                .setId(jti)
+                .setExpiration(Date.from(now.get().plus(validFor)));
+    }
+
+    @Test
+    void revoke_storesTheTokenAndRejectsItWithoutALookup() {
+        //given
+        Claims claims = claims(UUID.randomUUID().toString(), Duration.ofDays(7));
+        //when
+        boolean revoked = tokenRevocationList.revoke(claims);
+        //then
+        Assertions.assertTrue(revoked);
+        Assertions.assertTrue(tokenRevocationList.isRevoked(claims));
+        verify(revokedTokenRepository).save(argThat(entity -> entity.getJti().equals(claims.getId())
+                && entity.getExpiresAt().equals(claims.getExpiration().toInstant())));
+        verify(revokedTokenRepository, never()).existsByJti(anyString());
+    }
+
+    @Test
+    void isRevoked_letsOtherTokensThroughWithoutTheDatabase() {
+        //given
+        tokenRevocationList.revoke(claims(UUID.randomUUID().toString(), Duration.ofDays(7)));
+        //when
+        for (int i = 0; i < 1_000; i++) {
+            Assertions.assertFalse(tokenRevocationList.isRevoked(claims(UUID.randomUUID().toString(), Duration.ofDays(7))));
+        }
+        //then
+        verify(revokedTokenRepository, atMost(10)).existsByJti(anyString());
+    }
+
+    @Test
+    void revoke_ignoresTokensWithoutAnId() {
+        //given
+        Claims claims = claims(null, Duration.ofDays(7));
+        //when
+        boolean revoked = tokenRevocationList.revoke(claims);
+        //then
+        Assertions.assertFalse(revoked);
+        Assertions.assertFalse(tokenRevocationList.isRevoked(claims));
+        verifyNoMoreInteractions(ignoreStubs(revokedTokenRepository));
+    }
+
+    @Test
+    void rebuild_loadsTheRevocationsThatHaveNotExpired() {
+        //given
+        Claims claims = claims(UUID.randomUUID().toString(), Duration.ofDays(3));
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(Instant.EPOCH, now.get()))
+                .thenReturn(Collections.singletonList(new RevokedTokenEntity(claims.getId(),
+                        claims.getExpiration().toInstant(), now.get().minus(Duration.ofDays(4)))));
+        //when
+        tokenRevocationList.rebuild();
+        //then
+        Assertions.assertTrue(tokenRevocationList.isRevoked(claims));
+        verify(revokedTokenRepository, never()).existsByJti(anyString());
+    }
+
+    @Test
+    void refresh_picksUpRevocationsOfOtherNodes() {
+        //given
+        Claims claims = claims(UUID.randomUUID().toString(), Duration.ofDays(7));
+        Instant lastPoll = now.get();
+        now.set(lastPoll.plusSeconds(5));
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtGreaterThan(
+                lastPoll.minus(Duration.ofMinutes(1)), now.get()))
+                .thenReturn(Collections.singletonList(new RevokedTokenEntity(claims.getId(),
+                        claims.getExpiration().toInstant(), now.get())));
+        //when
+        tokenRevocationList.refresh();
+        //then
+        Assertions.assertTrue(tokenRevocationList.isRevoked(claims));
+    }
+
+    @Test
+    void bloomFilterHit_isConfirmedAgainstTheDatabase() {
+        //given
+        Claims claims = claims(UUID.randomUUID().toString(), Duration.ofDays(7));
+        when(revokedTokenRepository.existsByJti(claims.getId())).thenReturn(false);
+        //when
+        Boolean unknown = tokenRevocationList.isRevokedIfKnown(claims);
+        tokenRevocationList.addRevocation(UUID.randomUUID().toString(), claims.getExpiration().toInstant());
+        boolean revoked = tokenRevocationList.confirm(claims.getId());
+        //then
+        Assertions.assertEquals(Boolean.FALSE, unknown);
+        Assertions.assertFalse(revoked);
+        Assertions.assertFalse(tokenRevocationList.recordLookup(claims.getId(), false));
+        Assertions.assertTrue(tokenRevocationList.recordLookup(claims.getId(), true));
+        Assertions.assertTrue(tokenRevocationList.recordLookup(claims.getId(), false));
+    }
+
+    @Test
+    void purge_dropsRevocationsOnceTheTokensExpired() {
+        //given
+        Claims claims = claims(UUID.randomUUID().toString(), Duration.ofMinutes(30));
+        tokenRevocationList.revoke(claims);
+        now.set(now.get().plus(Duration.ofHours(2)));
+        //when
+        tokenRevocationList.purge();
+        tokenRevocationList.addRevocation(UUID.randomUUID().toString(), now.get().minusSeconds(1));
+        //then
+        Assertions.assertEquals(Boolean.FALSE, tokenRevocationList.isRevokedIfKnown(claims));
+        verify(revokedTokenRepository).deleteExpired(now.get());
+    }
+}